@@ -0,0 +1,327 @@
+package question1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing hash table for birthday attacks, stored off the Java heap
+ *
+ * Each entry is 16 bytes: the first 64 bits of the hash as the key and the
+ * candidate index that produced it. Inputs are never stored, a probable match
+ * on the 64-bit key is confirmed by the caller recomputing the full hash of
+ * the stored index. Slots live in direct ByteBuffer segments so hundreds of
+ * millions of entries add nothing to the GC heap. Linear probing, the table
+ * doubles when it is half full.
+ *
+ * A table opened with openFile keeps its slots in a memory-mapped file instead,
+ * so it survives restarts together with a SearchCheckpoint. The slots go to
+ * numbered data files next to the given path, which itself only names the
+ * current one. A resize fills the next data file and then switches the
+ * name over, so no mapped file is ever renamed or deleted under its mapping,
+ * which Windows refuses, and a crash mid-resize leaves the old table current.
+ */
+public class BirthdayTable {
+
+    private static final int SLOT_BYTES = 16;
+    private static final int SEGMENT_SLOTS_LOG2 = 26; // 64M slots = 1 GiB per segment
+    private static final double MAX_LOAD = 0.5;
+
+    private final Path file; // names the current data file, null for a direct memory table
+    private long generation; // number of the current data file
+    private ByteBuffer[] segments;
+    private long capacity;
+    private long size;
+    private int resizeCount;
+    private long resizeNanos;
+
+    /**
+     * @param expectedEntries entries to hold before the first resize
+     */
+    public BirthdayTable(long expectedEntries) {
+        this.file = null;
+        allocate(slotsFor(expectedEntries), null);
+    }
+
+    private BirthdayTable(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens a file-backed table, reusing the slots already saved under file if
+     * there are any. Call force() before recording progress that relies on the entries.
+     */
+    public static BirthdayTable openFile(Path file, long expectedEntries) {
+        BirthdayTable table = new BirthdayTable(file);
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            long generation = currentGeneration(file);
+            Path dataFile = dataFile(file, generation);
+            long existingSlots = generation >= 0 && Files.isRegularFile(dataFile) ? Files.size(dataFile) / SLOT_BYTES : 0;
+            if (existingSlots >= 16 && Long.bitCount(existingSlots) == 1) {
+                table.generation = generation;
+                table.allocate(existingSlots, dataFile);
+                for (long slot = 0; slot < existingSlots; slot++) {
+                    if (table.value(slot) != 0) {
+                        table.size++;
+                    }
+                }
+            } else {
+                deleteFile(file);
+                table.generation = unusedGeneration(file, generation);
+                table.allocate(slotsFor(expectedEntries), dataFile(file, table.generation));
+                writeGeneration(file, table.generation);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open table file " + file, e);
+        }
+        return table;
+    }
+
+    /**
+     * Writes a file-backed table's slots to disk, no-op for a direct memory table
+     */
+    public void force() {
+        if (file == null) {
+            return;
+        }
+        for (ByteBuffer segment : segments) {
+            ((MappedByteBuffer) segment).force();
+        }
+    }
+
+    /**
+     * Deletes a table, used to start a search from scratch. The name goes
+     * first, so data files that are still mapped and cannot be deleted yet
+     * are never read again; a later call removes them.
+     */
+    public static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete table file " + file, e);
+        }
+        String prefix = file.getFileName() + ".";
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(file.toAbsolutePath().getParent(), prefix + "*")) {
+            for (Path sibling : siblings) {
+                String suffix = sibling.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+                    deleteIfUnmapped(sibling);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // No directory, nothing to delete
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list table files next to " + file, e);
+        }
+    }
+
+    /**
+     * Looks for an entry whose key matches and that the caller confirms,
+     * inserting (key, index) when none does
+     * @param isSameHash confirms a stored index really has the same full hash
+     * @return the confirmed stored index, or -1 if the entry was inserted
+     */
+    public long findOrInsert(long key, long index, LongPredicate isSameHash) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Candidate index cannot be negative: " + index);
+        }
+        long mask = capacity - 1;
+        for (long slot = key & mask; ; slot = (slot + 1) & mask) {
+            long stored = value(slot);
+            if (stored == 0) {
+                write(slot, key, index + 1);
+                size++;
+                if (size > capacity * MAX_LOAD) {
+                    resize();
+                }
+                return -1;
+            }
+            if (key(slot) == key && isSameHash.test(stored - 1)) {
+                return stored - 1;
+            }
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Off-heap bytes held by the slots
+     */
+    public long bytesAllocated() {
+        return capacity * SLOT_BYTES;
+    }
+
+    public double bytesPerEntry() {
+        return size == 0 ? 0 : (double) bytesAllocated() / size;
+    }
+
+    public int resizeCount() {
+        return resizeCount;
+    }
+
+    public double resizeSeconds() {
+        return resizeNanos / 1e9;
+    }
+
+    private void resize() {
+        long start = System.nanoTime();
+        ByteBuffer[] oldSegments = segments;
+        long oldCapacity = capacity;
+        long oldGeneration = generation;
+
+        if (file != null) {
+            generation = unusedGeneration(file, generation);
+        }
+        allocate(oldCapacity * 2, file == null ? null : dataFile(file, generation));
+        long mask = capacity - 1;
+        for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            ByteBuffer segment = oldSegments[(int) (oldSlot >>> SEGMENT_SLOTS_LOG2)];
+            int offset = offsetInSegment(oldSlot);
+            long value = segment.getLong(offset + 8);
+            if (value == 0) {
+                continue;
+            }
+            long key = segment.getLong(offset);
+            long slot = key & mask;
+            while (value(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            write(slot, key, value);
+        }
+
+        if (file != null) {
+            // Only a complete, forced table becomes current
+            force();
+            try {
+                writeGeneration(file, generation);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot switch table file " + file, e);
+            }
+            deleteIfUnmapped(dataFile(file, oldGeneration));
+        }
+
+        resizeCount++;
+        resizeNanos += System.nanoTime() - start;
+    }
+
+    private static Path dataFile(Path file, long generation) {
+        return file.resolveSibling(file.getFileName() + "." + generation);
+    }
+
+    /**
+     * Number of the data file that file names, or -1 when there is none
+     */
+    private static long currentGeneration(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(Files.readString(file, StandardCharsets.US_ASCII).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Points file at a data file. The small name file is never mapped, so it
+     * can be replaced atomically on every platform.
+     */
+    private static void writeGeneration(Path file, long generation) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, generation + "\n", StandardCharsets.US_ASCII);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * First generation above after whose data file is absent, so new slots always map as zeros
+     */
+    private static long unusedGeneration(Path file, long after) {
+        long generation = after + 1;
+        while (Files.exists(dataFile(file, generation)) && !deleteIfUnmapped(dataFile(file, generation))) {
+            generation++;
+        }
+        return generation;
+    }
+
+    /**
+     * Deletes a data file, returning false when it is still mapped somewhere (Windows)
+     * and has to wait for the GC to release the mapping
+     */
+    private static boolean deleteIfUnmapped(Path dataFile) {
+        try {
+            Files.deleteIfExists(dataFile);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long slotsFor(long expectedEntries) {
+        return Long.highestOneBit(Math.max(16, (long) (expectedEntries / MAX_LOAD)) - 1) << 1;
+    }
+
+    /**
+     * Allocates zeroed segments in direct memory, or maps them from target when it is not null
+     */
+    private void allocate(long slots, Path target) {
+        long segmentSlots = 1L << SEGMENT_SLOTS_LOG2;
+        int segmentCount = (int) Math.max(1, slots / segmentSlots);
+        int segmentBytes = (int) Math.min(slots, segmentSlots) * SLOT_BYTES;
+        ByteBuffer[] newSegments = new ByteBuffer[segmentCount];
+        if (target == null) {
+            for (int i = 0; i < segmentCount; i++) {
+                // Direct buffers start zeroed, so every value reads as empty
+                newSegments[i] = ByteBuffer.allocateDirect(segmentBytes);
+            }
+        } else {
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // Mapping past the end grows the file, new bytes read as zero
+                for (int i = 0; i < segmentCount; i++) {
+                    newSegments[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentBytes, segmentBytes);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map table file " + target, e);
+            }
+        }
+        segments = newSegments;
+        capacity = slots;
+    }
+
+    private long key(long slot) {
+        return segments[(int) (slot >>> SEGMENT_SLOTS_LOG2)].getLong(offsetInSegment(slot));
+    }
+
+    // Stored as candidate index + 1 so that 0 marks an empty slot
+    private long value(long slot) {
+        return segments[(int) (slot >>> SEGMENT_SLOTS_LOG2)].getLong(offsetInSegment(slot) + 8);
+    }
+
+    private void write(long slot, long key, long value) {
+        ByteBuffer segment = segments[(int) (slot >>> SEGMENT_SLOTS_LOG2)];
+        int offset = offsetInSegment(slot);
+        segment.putLong(offset, key);
+        segment.putLong(offset + 8, value);
+    }
+
+    private static int offsetInSegment(long slot) {
+        return (int) (slot & ((1L << SEGMENT_SLOTS_LOG2) - 1)) * SLOT_BYTES;
+    }
+}
@@ -0,0 +1,125 @@
+package question1;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Produces the sequential candidate strings of Q1_ii as raw ASCII bytes
+ *
+ * Works like an odometer over the printable range 32-126: next() bumps the
+ * last character and carries to the left, growing the string by one when every
+ * position wraps. The candidate lives right-aligned in a fixed buffer so it can
+ * be fed straight to a digest without creating a String per attempt.
+ * Order: " ", "!", ..., "~", "  ", " !", ... (same as generateSequentialString)
+ */
+public class CandidateGenerator {
+
+    public static final int ASCII_START = 32; // Space character
+    public static final int ASCII_END = 126; // Tilde character ~
+    public static final int ASCII_RANGE = ASCII_END - ASCII_START + 1; // 95 characters
+
+    // 95^10 > 2^63, so no long index needs more than 10 characters
+    static final int MAX_LENGTH = 16;
+
+    private final byte[] buffer = new byte[MAX_LENGTH];
+    private int offset;
+    private long index;
+
+    public CandidateGenerator(long startIndex) {
+        seek(startIndex);
+    }
+
+    /**
+     * Positions the generator on the candidate with the given index
+     */
+    public void seek(long index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Candidate index cannot be negative: " + index);
+        }
+        this.index = index;
+
+        // Single characters come first
+        if (index < ASCII_RANGE) {
+            offset = MAX_LENGTH - 1;
+            buffer[offset] = (byte) (ASCII_START + index);
+            return;
+        }
+
+        // Find the string length, then write the base-95 digits right to left
+        long remaining = index - ASCII_RANGE;
+        int length = 2;
+        long rangeSize = (long) ASCII_RANGE * ASCII_RANGE;
+        while (remaining >= rangeSize) {
+            remaining -= rangeSize;
+            length++;
+            if (rangeSize > Long.MAX_VALUE / ASCII_RANGE) {
+                break; // Next range is larger than any long index
+            }
+            rangeSize *= ASCII_RANGE;
+        }
+
+        offset = MAX_LENGTH - length;
+        for (int i = MAX_LENGTH - 1; i >= offset; i--) {
+            buffer[i] = (byte) (ASCII_START + (remaining % ASCII_RANGE));
+            remaining /= ASCII_RANGE;
+        }
+    }
+
+    /**
+     * Advances to the next candidate in place
+     */
+    public void next() {
+        index++;
+        for (int i = MAX_LENGTH - 1; i >= offset; i--) {
+            if (buffer[i] != ASCII_END) {
+                buffer[i]++;
+                return;
+            }
+            buffer[i] = ASCII_START;
+        }
+        // Every position wrapped, e.g. "~~" -> "   "
+        offset--;
+        buffer[offset] = ASCII_START;
+    }
+
+    /**
+     * Moves to the given index, stepping when it is the next one and seeking otherwise
+     */
+    public void moveTo(long target) {
+        if (target == index + 1) {
+            next();
+        } else if (target != index) {
+            seek(target);
+        }
+    }
+
+    public long index() {
+        return index;
+    }
+
+    /**
+     * Backing buffer, the candidate is buffer()[offset() .. offset() + length())
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int length() {
+        return MAX_LENGTH - offset;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, offset, length(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns the candidate string for a single index
+     */
+    public static String candidateAt(long index) {
+        return new CandidateGenerator(index).toString();
+    }
+}
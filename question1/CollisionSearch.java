@@ -0,0 +1,277 @@
+package question1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import utils.Hash256;
+import utils.ShaHash;
+
+/**
+ * Parallel collision search on a truncated SHA-256 using distinguished points
+ *
+ * Each value x is a candidate index, f(x) hashes the Q1_ii candidate string at
+ * that index and keeps the top truncationBits of the digest. Workers walk
+ * f from random starting points and only remember a walk when it reaches a
+ * distinguished point (low distinguishedBits of x all zero). Two walks that
+ * end on the same distinguished point have merged, and replaying both from
+ * their starts finds the colliding pair. Memory is one (start, length) entry
+ * per distinguished point instead of one entry per hash.
+ */
+public class CollisionSearch {
+
+    private final int truncationBits;
+    private final int distinguishedBits;
+    private final int workerCount;
+
+    /**
+     * @param truncationBits number of leading digest bits compared, 8-64
+     * @param distinguishedBits low zero bits marking a distinguished point
+     */
+    public CollisionSearch(int truncationBits, int distinguishedBits, int workerCount) {
+        if (truncationBits < 8 || truncationBits > 64) {
+            throw new IllegalArgumentException("Truncation must be 8-64 bits: " + truncationBits);
+        }
+        if (distinguishedBits < 0 || distinguishedBits >= truncationBits) {
+            throw new IllegalArgumentException("Distinguished bits must be 0-" + (truncationBits - 1));
+        }
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1: " + workerCount);
+        }
+        this.truncationBits = truncationBits;
+        this.distinguishedBits = distinguishedBits;
+        this.workerCount = workerCount;
+    }
+
+    /**
+     * Picks distinguished bits so that about 2^16 points are stored before the
+     * expected collision at 2^(truncationBits / 2) steps
+     */
+    public static int defaultDistinguishedBits(int truncationBits) {
+        return Math.max(0, truncationBits / 2 - 16);
+    }
+
+    /**
+     * Runs until a collision is found or the time limit passes
+     */
+    public Result search(long timeLimitMillis, long seed) {
+        ConcurrentHashMap<Long, Trail> points = new ConcurrentHashMap<>();
+        AtomicReference<long[]> collision = new AtomicReference<>();
+        AtomicLong totalSteps = new AtomicLong();
+        AtomicLong robinHoods = new AtomicLong();
+        long deadline = System.currentTimeMillis() + timeLimitMillis;
+        SplittableRandom seeds = new SplittableRandom(seed);
+
+        long startTime = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < workerCount; w++) {
+            SplittableRandom random = seeds.split();
+            Thread thread = new Thread(() -> {
+                Walker walker = new Walker();
+                // Walks longer than 20x the expected distance are assumed stuck in a cycle
+                long maxTrail = 20L << distinguishedBits;
+
+                while (collision.get() == null && System.currentTimeMillis() < deadline) {
+                    long start = random.nextLong() & mask();
+                    // Always take at least one step so the start itself is never stored
+                    long x = walker.f(start);
+                    long length = 1;
+                    while (!isDistinguished(x) && length < maxTrail && collision.get() == null) {
+                        x = walker.f(x);
+                        length++;
+                    }
+                    if (!isDistinguished(x)) {
+                        continue;
+                    }
+
+                    Trail trail = new Trail(start, length);
+                    Trail other = points.putIfAbsent(x, trail);
+                    if (other != null && other.start != start) {
+                        long[] pair = resolve(walker, trail, other);
+                        if (pair == null) {
+                            robinHoods.incrementAndGet();
+                        } else {
+                            collision.compareAndSet(null, pair);
+                        }
+                    }
+                }
+                totalSteps.addAndGet(walker.calls);
+            }, "collision-worker-" + w);
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                collision.compareAndSet(null, new long[0]);
+                Thread.currentThread().interrupt();
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startTime;
+
+        long[] pair = collision.get();
+        if (pair != null && pair.length == 0) {
+            pair = null;
+        }
+        return new Result(pair, truncationBits, workerCount, totalSteps.get(), points.size(),
+                robinHoods.get(), elapsedNanos);
+    }
+
+    /**
+     * Replays two walks that reached the same distinguished point
+     * @return the two colliding indices, or null when one start lies on the other walk
+     */
+    private long[] resolve(Walker walker, Trail a, Trail b) {
+        long x1 = a.start;
+        long x2 = b.start;
+        for (long i = a.length; i > b.length; i--) {
+            x1 = walker.f(x1);
+        }
+        for (long i = b.length; i > a.length; i--) {
+            x2 = walker.f(x2);
+        }
+        while (x1 != x2) {
+            long y1 = walker.f(x1);
+            long y2 = walker.f(x2);
+            if (y1 == y2) {
+                // With 64-bit truncation x and x ^ sign bit name the same input
+                boolean sameInput = (x1 & Long.MAX_VALUE) == (x2 & Long.MAX_VALUE);
+                return sameInput ? null : new long[] { x1, x2 };
+            }
+            x1 = y1;
+            x2 = y2;
+        }
+        return null;
+    }
+
+    private boolean isDistinguished(long x) {
+        return (x & ((1L << distinguishedBits) - 1)) == 0;
+    }
+
+    private long mask() {
+        return truncationBits == 64 ? -1L : (1L << truncationBits) - 1;
+    }
+
+    /**
+     * Starting point and step count of a walk that ended on a distinguished point
+     */
+    private static class Trail {
+        final long start;
+        final long length;
+
+        Trail(long start, long length) {
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Per-thread step function state, reuses one generator and digest buffer
+     */
+    private class Walker {
+        private final CandidateGenerator generator = new CandidateGenerator(0);
+        private final byte[] digest = new byte[Hash256.BYTES];
+        long calls;
+
+        long f(long x) {
+            calls++;
+            // Candidate indices are non-negative, fold the sign bit away for 64-bit truncation
+            generator.seek(x & Long.MAX_VALUE);
+            ShaHash.sha256(generator.buffer(), generator.offset(), generator.length(), digest, 0);
+            return truncate(digest, truncationBits);
+        }
+    }
+
+    /**
+     * Top bits of the digest as an unsigned value
+     */
+    static long truncate(byte[] digest, int bits) {
+        long prefix = 0;
+        for (int i = 0; i < 8; i++) {
+            prefix = (prefix << 8) | (digest[i] & 0xffL);
+        }
+        return bits == 64 ? prefix : prefix >>> (64 - bits);
+    }
+
+    /**
+     * Outcome of a truncated collision search
+     */
+    public static class Result {
+        private final long[] pair;
+        private final int truncationBits;
+        private final int workerCount;
+        private final long steps;
+        private final int storedPoints;
+        private final long robinHoods;
+        private final long elapsedNanos;
+
+        Result(long[] pair, int truncationBits, int workerCount, long steps, int storedPoints,
+               long robinHoods, long elapsedNanos) {
+            this.pair = pair;
+            this.truncationBits = truncationBits;
+            this.workerCount = workerCount;
+            this.steps = steps;
+            this.storedPoints = storedPoints;
+            this.robinHoods = robinHoods;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public boolean isFound() {
+            return pair != null;
+        }
+
+        /**
+         * The two colliding inputs, only valid when isFound()
+         */
+        public String getInput1() {
+            return CandidateGenerator.candidateAt(pair[0] & Long.MAX_VALUE);
+        }
+
+        public String getInput2() {
+            return CandidateGenerator.candidateAt(pair[1] & Long.MAX_VALUE);
+        }
+
+        public long getSteps() {
+            return steps;
+        }
+
+        public int getStoredPoints() {
+            return storedPoints;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        /**
+         * Prints the search statistics and the colliding pair if one was found
+         */
+        public void print() {
+            double expected = Math.sqrt(Math.PI / 2 * Math.pow(2, truncationBits));
+            System.out.println("Truncated output: first " + truncationBits + " bits of SHA-256");
+            System.out.println("Workers: " + workerCount);
+            System.out.println("Hashes computed: " + String.format("%,d", steps)
+                    + " (expected ~" + String.format("%,.0f", expected) + ")");
+            System.out.println("Distinguished points stored: " + String.format("%,d", storedPoints));
+            System.out.println("Merged walks without collision: " + robinHoods);
+            System.out.println("Time elapsed: " + String.format("%.2f", getElapsedSeconds()) + " seconds");
+            System.out.println("Rate: " + String.format("%,.0f", steps / Math.max(getElapsedSeconds(), 1e-9))
+                    + " hashes/second");
+
+            if (isFound()) {
+                String input1 = getInput1();
+                String input2 = getInput2();
+                System.out.println("TRUNCATED COLLISION FOUND!");
+                System.out.println("   Input 1: \"" + input1 + "\" → " + ShaHash.sha256Hash(input1));
+                System.out.println("   Input 2: \"" + input2 + "\" → " + ShaHash.sha256Hash(input2));
+            } else {
+                System.out.println("NO TRUNCATED COLLISION FOUND within the time limit");
+            }
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package question1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/**
+ * Multi-threaded brute-force search over a range of candidate indices
+ *
+ * The index range is split into one contiguous slice per worker. Workers claim
+ * small blocks from their own slice, and a worker that runs dry steals the
+ * upper half of the largest remaining slice, so uneven progress still keeps
+ * every core busy. All workers stop as soon as one of them finds a match, the
+ * range is exhausted or the time limit passes.
+ */
+public class ParallelSearch {
+
+    /**
+     * Tests one candidate index, implementations are used by a single worker
+     * thread so they may keep mutable scratch state
+     */
+    public interface CandidateTest {
+        boolean test(long index);
+
+        /**
+         * Tests indices [from, to) in order, batching implementations override
+         * this to hash several candidates at once
+         * @return the first matching index, or -1 when none matches
+         */
+        default long testBlock(long from, long to) {
+            for (long index = from; index < to; index++) {
+                if (test(index)) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final int BLOCK_SIZE = 4096;
+
+    private final int workerCount;
+
+    public ParallelSearch(int workerCount) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1: " + workerCount);
+        }
+        this.workerCount = workerCount;
+    }
+
+    /**
+     * Searches indices [startIndex, startIndex + maxIterations) until a match is found
+     * @param testFactory creates one CandidateTest per worker id
+     * @param timeLimitMillis wall clock budget shared by all workers
+     * @throws RuntimeException or Error, the first one a worker threw, after every worker has stopped.
+     *         Interrupting the caller also stops the workers and waits for them, leaving the interrupt flag set.
+     */
+    public Result search(long startIndex, long maxIterations, long timeLimitMillis,
+                         IntFunction<CandidateTest> testFactory) {
+        return search(startIndex, maxIterations, timeLimitMillis, testFactory, null, 0);
+    }
+
+    /**
+     * Same as search, but resumes from the checkpoint when it holds state for this
+     * job and saves progress to it every checkpointIntervalMillis. A resumed search
+     * keeps the saved number of workers. The checkpoint is cleared once the search
+     * finds a match or exhausts the range, and kept when it stops on the time limit,
+     * an interrupt or a failure.
+     */
+    public Result search(long startIndex, long maxIterations, long timeLimitMillis,
+                         IntFunction<CandidateTest> testFactory,
+                         SearchCheckpoint checkpoint, long checkpointIntervalMillis) {
+        SearchCheckpoint.State saved = checkpoint == null ? null : checkpoint.load();
+        Range[] ranges;
+        long previousAttempts = 0;
+        long previousNanos = 0;
+        if (saved != null) {
+            ranges = new Range[saved.rangeCount()];
+            for (int r = 0; r < ranges.length; r++) {
+                ranges[r] = new Range(saved.next(r), saved.end(r));
+                ranges[r].completedAttempts = saved.attempts(r);
+            }
+            previousAttempts = saved.totalAttempts();
+            previousNanos = saved.elapsedNanos();
+        } else {
+            ranges = new Range[workerCount];
+            long slice = maxIterations / workerCount;
+            long from = startIndex;
+            for (int w = 0; w < workerCount; w++) {
+                long to = (w == workerCount - 1) ? startIndex + maxIterations : from + slice;
+                ranges[w] = new Range(from, to);
+                from = to;
+            }
+        }
+        int workers = ranges.length;
+
+        SharedState state = new SharedState(ranges, System.currentTimeMillis() + timeLimitMillis);
+        long[] attempts = new long[workers];
+        long[] workerNanos = new long[workers];
+
+        long startTime = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            final int workerId = w;
+            Thread thread = new Thread(() -> {
+                long workerStart = System.nanoTime();
+                try {
+                    attempts[workerId] = runWorker(workerId, state, testFactory.apply(workerId));
+                } catch (Throwable t) {
+                    state.fail(t);
+                }
+                workerNanos[workerId] = System.nanoTime() - workerStart;
+            }, "search-worker-" + w);
+            threads.add(thread);
+            thread.start();
+        }
+
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    // Once interrupted, only wait for the stopped workers to leave
+                    thread.join(checkpoint == null || interrupted ? 0 : checkpointIntervalMillis);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    state.stop = true;
+                    continue;
+                }
+                if (checkpoint != null && !interrupted && thread.isAlive() && state.failure.get() == null) {
+                    try {
+                        checkpoint.save(snapshot(state, previousNanos + System.nanoTime() - startTime));
+                    } catch (RuntimeException e) {
+                        state.fail(e);
+                    }
+                }
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startTime;
+
+        Throwable failure = state.failure.get();
+        if (checkpoint != null) {
+            boolean unfinished = state.foundIndex.get() < 0 && (state.timedOut || interrupted || failure != null);
+            try {
+                if (unfinished) {
+                    // A failed worker's block is still in flight, so a resumed search repeats it
+                    checkpoint.save(snapshot(state, previousNanos + elapsedNanos));
+                } else {
+                    checkpoint.clear();
+                }
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException("Search worker failed", failure);
+        }
+
+        return new Result(state.foundIndex.get(), attempts, workerNanos, elapsedNanos, state.timedOut,
+                previousAttempts);
+    }
+
+    /**
+     * Captures every range from the start of its in-progress block, so a resumed
+     * search repeats at most one block per worker. Holding the steal lock keeps
+     * a half-moved range out of the snapshot.
+     */
+    private static SearchCheckpoint.State snapshot(SharedState state, long elapsedNanos) {
+        Range[] ranges = state.ranges;
+        long[] next = new long[ranges.length];
+        long[] end = new long[ranges.length];
+        long[] attempts = new long[ranges.length];
+        synchronized (state.stealLock) {
+            for (int r = 0; r < ranges.length; r++) {
+                synchronized (ranges[r]) {
+                    next[r] = ranges[r].inFlight >= 0 ? ranges[r].inFlight : ranges[r].next;
+                    end[r] = Math.max(next[r], ranges[r].end);
+                    attempts[r] = ranges[r].completedAttempts;
+                }
+            }
+        }
+        return new SearchCheckpoint.State(next, end, attempts, elapsedNanos);
+    }
+
+    private long runWorker(int workerId, SharedState state, CandidateTest test) {
+        Range own = state.ranges[workerId];
+        long attempts = 0;
+        long previousAttempts;
+        synchronized (own) {
+            previousAttempts = own.completedAttempts;
+        }
+
+        while (!state.stop) {
+            long blockStart;
+            long blockEnd;
+            synchronized (own) {
+                // The previous block is done, publish it before claiming the next one
+                own.completedAttempts = previousAttempts + attempts;
+                blockStart = own.next;
+                blockEnd = Math.min(blockStart + BLOCK_SIZE, own.end);
+                own.next = blockEnd;
+                own.inFlight = blockStart < blockEnd ? blockStart : -1;
+            }
+
+            if (blockStart >= blockEnd) {
+                if (!steal(workerId, state)) {
+                    break;
+                }
+                continue;
+            }
+
+            long match = test.testBlock(blockStart, blockEnd);
+            if (match >= 0) {
+                attempts += match - blockStart + 1;
+                state.found(match);
+                return attempts;
+            }
+            attempts += blockEnd - blockStart;
+
+            if (System.currentTimeMillis() >= state.deadline) {
+                state.timedOut = true;
+                state.stop = true;
+            }
+        }
+
+        synchronized (own) {
+            own.completedAttempts = previousAttempts + attempts;
+            own.inFlight = -1;
+        }
+        return attempts;
+    }
+
+    /**
+     * Moves the upper half of the largest other range into this worker's range
+     * @return false when no range has enough work left to be worth splitting
+     */
+    private boolean steal(int workerId, SharedState state) {
+        while (!state.stop) {
+            Range victim = null;
+            long largest = 0;
+            for (int w = 0; w < state.ranges.length; w++) {
+                if (w == workerId) {
+                    continue;
+                }
+                long remaining = state.ranges[w].remaining();
+                if (remaining > largest) {
+                    largest = remaining;
+                    victim = state.ranges[w];
+                }
+            }
+            if (victim == null || largest < 2L * BLOCK_SIZE) {
+                return false;
+            }
+
+            // The range leaves the victim and reaches this worker in one step as far as snapshot() can tell
+            Range own = state.ranges[workerId];
+            synchronized (state.stealLock) {
+                long stolenFrom;
+                long stolenTo;
+                synchronized (victim) {
+                    long remaining = victim.end - victim.next;
+                    if (remaining < 2L * BLOCK_SIZE) {
+                        continue; // Victim moved on, look again
+                    }
+                    stolenFrom = victim.next + remaining / 2;
+                    stolenTo = victim.end;
+                    victim.end = stolenFrom;
+                }
+                synchronized (own) {
+                    own.next = stolenFrom;
+                    own.end = stolenTo;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Half-open index range owned by one worker, guarded by its own monitor
+     */
+    private static class Range {
+        long next;
+        long end;
+        long inFlight = -1; // Start of the block being hashed, -1 when idle
+        long completedAttempts;
+
+        Range(long next, long end) {
+            this.next = next;
+            this.end = end;
+        }
+
+        synchronized long remaining() {
+            return end - next;
+        }
+    }
+
+    private static class SharedState {
+        final Range[] ranges;
+        final long deadline;
+        final AtomicLong foundIndex = new AtomicLong(-1);
+        // First exception thrown by a worker or a checkpoint save
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        // Taken before any range monitor, by steals and snapshots only
+        final Object stealLock = new Object();
+        volatile boolean stop;
+        volatile boolean timedOut;
+
+        SharedState(Range[] ranges, long deadline) {
+            this.ranges = ranges;
+            this.deadline = deadline;
+        }
+
+        void found(long index) {
+            foundIndex.compareAndSet(-1, index);
+            stop = true;
+        }
+
+        void fail(Throwable t) {
+            failure.compareAndSet(null, t);
+            stop = true;
+        }
+    }
+
+    /**
+     * Outcome of a search with combined and per-worker statistics
+     */
+    public static class Result {
+        private final long foundIndex;
+        private final long[] workerAttempts;
+        private final long[] workerNanos;
+        private final long elapsedNanos;
+        private final boolean timedOut;
+        private final long previousAttempts;
+
+        Result(long foundIndex, long[] workerAttempts, long[] workerNanos, long elapsedNanos, boolean timedOut,
+               long previousAttempts) {
+            this.foundIndex = foundIndex;
+            this.workerAttempts = workerAttempts;
+            this.workerNanos = workerNanos;
+            this.elapsedNanos = elapsedNanos;
+            this.timedOut = timedOut;
+            this.previousAttempts = previousAttempts;
+        }
+
+        public boolean isFound() {
+            return foundIndex >= 0;
+        }
+
+        /**
+         * Index of the matching candidate, or -1 if none was found
+         */
+        public long getFoundIndex() {
+            return foundIndex;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * Attempts made by earlier runs of a resumed search, not part of the rates
+         */
+        public long getPreviousAttempts() {
+            return previousAttempts;
+        }
+
+        /**
+         * Attempts made by this run
+         */
+        public long getTotalAttempts() {
+            long total = 0;
+            for (long attempts : workerAttempts) {
+                total += attempts;
+            }
+            return total;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        /**
+         * Combined hashes per second across all workers
+         */
+        public double getRate() {
+            return getTotalAttempts() / Math.max(getElapsedSeconds(), 1e-9);
+        }
+
+        public int getWorkerCount() {
+            return workerAttempts.length;
+        }
+
+        public long getWorkerAttempts(int workerId) {
+            return workerAttempts[workerId];
+        }
+
+        public double getWorkerRate(int workerId) {
+            return workerAttempts[workerId] / Math.max(workerNanos[workerId] / 1e9, 1e-9);
+        }
+
+        /**
+         * Prints the combined rate followed by one line per worker
+         */
+        public void printRates() {
+            System.out.println("Workers: " + getWorkerCount());
+            System.out.println("Rate: " + String.format("%,.0f", getRate()) + " hashes/second (combined)");
+            for (int w = 0; w < getWorkerCount(); w++) {
+                System.out.printf("  Worker %2d: %,d attempts, %,.0f hashes/second%n",
+                        w, getWorkerAttempts(w), getWorkerRate(w));
+            }
+        }
+    }
+}
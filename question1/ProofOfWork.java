@@ -0,0 +1,186 @@
+package question1;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import utils.Hash256;
+import utils.Sha256;
+import utils.ShaHash;
+
+/**
+ * Proof-of-work miner on top of ParallelSearch
+ *
+ * Looks for a nonce such that SHA-256(header || nonce), or SHA-256 of that
+ * digest in double mode, starts with difficultyBits zero bits. The nonce is
+ * appended as 8 big-endian bytes and the target is checked on the raw digest
+ * words, no hex strings involved.
+ *
+ * Long headers are hashed once into a SHA-256 midstate and each nonce only
+ * compresses the final block(s). Short headers stay on MessageDigest, whose
+ * CPU intrinsics beat the portable engine until the prefix spans many blocks.
+ */
+public class ProofOfWork {
+
+    private static final int NONCE_BYTES = 8;
+    // Below this the JDK digest re-hashing the header is faster than a portable midstate
+    private static final int MIDSTATE_MIN_HEADER_BYTES = 1024;
+
+    private final byte[] header;
+    private final int difficultyBits;
+    private final boolean doubleSha;
+    private final int workerCount;
+    private final Sha256 midstate; // null when the header is too short to benefit
+
+    public ProofOfWork(byte[] header, int difficultyBits, boolean doubleSha, int workerCount) {
+        if (difficultyBits < 0 || difficultyBits > 256) {
+            throw new IllegalArgumentException("Difficulty must be 0-256 bits: " + difficultyBits);
+        }
+        this.header = header.clone();
+        this.difficultyBits = difficultyBits;
+        this.doubleSha = doubleSha;
+        this.workerCount = workerCount;
+        this.midstate = header.length >= MIDSTATE_MIN_HEADER_BYTES ? new Sha256().update(header) : null;
+    }
+
+    public ProofOfWork(String header, int difficultyBits, boolean doubleSha, int workerCount) {
+        this(header.getBytes(StandardCharsets.UTF_8), difficultyBits, doubleSha, workerCount);
+    }
+
+    /**
+     * Searches nonces from 0 upwards until one meets the target or the time limit passes
+     */
+    public Result mine(long timeLimitMillis) {
+        ParallelSearch.Result search = new ParallelSearch(workerCount).search(
+                0, Long.MAX_VALUE, timeLimitMillis, workerId -> new NonceTest());
+        Hash256 hash = search.isFound() ? hash(search.getFoundIndex()) : null;
+        return new Result(search, hash, difficultyBits, doubleSha);
+    }
+
+    /**
+     * Computes the proof-of-work hash for one nonce
+     */
+    public Hash256 hash(long nonce) {
+        NonceTest test = new NonceTest();
+        test.digest(nonce);
+        return Hash256.fromBytes(test.digest);
+    }
+
+    /**
+     * Checks a claimed nonce against this header and difficulty
+     */
+    public boolean verify(long nonce) {
+        return hash(nonce).leadingZeroBits() >= difficultyBits;
+    }
+
+    /**
+     * True when the 32-byte digest starts with at least bits zero bits,
+     * compared one 64-bit word at a time
+     */
+    static boolean meetsTarget(byte[] digest, int bits) {
+        for (int word = 0; bits > 0; word++, bits -= 64) {
+            long value = 0;
+            for (int i = word * 8; i < word * 8 + 8; i++) {
+                value = (value << 8) | (digest[i] & 0xffL);
+            }
+            if (bits >= 64) {
+                if (value != 0) {
+                    return false;
+                }
+            } else if (Long.numberOfLeadingZeros(value) < bits) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Per-worker buffers: header followed by the nonce, and the digest output
+     */
+    private class NonceTest implements ParallelSearch.CandidateTest {
+        private final byte[] message = Arrays.copyOf(header, header.length + NONCE_BYTES);
+        private final byte[] digest = new byte[Hash256.BYTES];
+
+        @Override
+        public boolean test(long nonce) {
+            digest(nonce);
+            return meetsTarget(digest, difficultyBits);
+        }
+
+        void digest(long nonce) {
+            for (int i = message.length - 1; i >= header.length; i--) {
+                message[i] = (byte) nonce;
+                nonce >>>= 8;
+            }
+            if (midstate != null) {
+                // Shared read-only midstate, restore copies it into the thread's own engine
+                ShaHash.sha256(midstate, message, header.length, NONCE_BYTES, digest, 0);
+            } else {
+                ShaHash.sha256(message, 0, message.length, digest, 0);
+            }
+            if (doubleSha) {
+                ShaHash.sha256(digest, 0, Hash256.BYTES, digest, 0);
+            }
+        }
+    }
+
+    /**
+     * Outcome of a mining run with expected versus actual time to solution
+     */
+    public static class Result {
+        private final ParallelSearch.Result search;
+        private final Hash256 hash;
+        private final int difficultyBits;
+        private final boolean doubleSha;
+
+        Result(ParallelSearch.Result search, Hash256 hash, int difficultyBits, boolean doubleSha) {
+            this.search = search;
+            this.hash = hash;
+            this.difficultyBits = difficultyBits;
+            this.doubleSha = doubleSha;
+        }
+
+        public boolean isFound() {
+            return search.isFound();
+        }
+
+        public long getNonce() {
+            return search.getFoundIndex();
+        }
+
+        public Hash256 getHash() {
+            return hash;
+        }
+
+        /**
+         * Mean number of hashes needed to meet the target, 2^difficultyBits
+         */
+        public double getExpectedHashes() {
+            return Math.pow(2, difficultyBits);
+        }
+
+        /**
+         * Expected seconds to a solution at the measured hash rate
+         */
+        public double getExpectedSeconds() {
+            return getExpectedHashes() / search.getRate();
+        }
+
+        public void print() {
+            System.out.println("Difficulty: " + difficultyBits + " leading zero bits"
+                    + (doubleSha ? " (double SHA-256)" : " (SHA-256)"));
+            System.out.println("Hashes computed: " + String.format("%,d", search.getTotalAttempts())
+                    + " (expected " + String.format("%,.0f", getExpectedHashes()) + ")");
+            search.printRates();
+            System.out.println("Time to solution: " + String.format("%.2f", search.getElapsedSeconds())
+                    + " seconds actual, " + String.format("%.2f", getExpectedSeconds()) + " seconds expected");
+
+            if (isFound()) {
+                System.out.println("NONCE FOUND: " + getNonce());
+                System.out.println("   Block hash: " + hash.toHex());
+                System.out.println("   Leading zero bits: " + hash.leadingZeroBits());
+            } else {
+                System.out.println("NO VALID NONCE FOUND within the time limit");
+            }
+        }
+    }
+}
@@ -1,23 +1,39 @@
 package question1;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import utils.BatchHasher;
+import utils.Hash256;
+import utils.ShaHash;
 
 public class Q1_ii {
     
     private static final int MAX_ITERATIONS = 1_000_000;
     private static final int TIME_LIMIT_SECONDS = 30;
-    private static MessageDigest digest;
+    private static final int WORKERS = Runtime.getRuntime().availableProcessors();
+    private static final int COLLISION_TRUNCATION_BITS = 48;
+    // Stored hashes above this count move from a HashMap to the off-heap BirthdayTable
+    private static final int OFF_HEAP_THRESHOLD = 250_000;
+    // Search progress is saved here so a restarted run continues where the last one stopped
+    private static final Path CHECKPOINT_DIR = Paths.get("checkpoints");
+    private static final int CHECKPOINT_INTERVAL_SECONDS = 5;
+    private static final int POW_DIFFICULTY_BITS = 20;
+    private static final long PROGRESS_INTERVAL = 50_000;
     
     public static void main(String[] args) {
       Scanner scanner = new Scanner(System.in);
         try {
-            digest = MessageDigest.getInstance("SHA-256");
-            
             System.out.println("=== Hash Function Security Demonstration ===\n");
 
             // Get user input
@@ -40,6 +56,20 @@ public class Q1_ii {
             System.out.println("3. COLLISION RESISTANCE TEST");
             System.out.println("Finding any two different inputs that produce the same hash");
             testCollisionResistance(userInput);
+
+            // 4. Collision on a truncated hash
+            System.out.println("\n" + "=".repeat(60) + "\n");
+            System.out.println("4. TRUNCATED COLLISION SEARCH");
+            System.out.println("Finding two inputs whose hashes share the first " + COLLISION_TRUNCATION_BITS + " bits");
+            testTruncatedCollision();
+
+            // 5. Proof-of-work mining
+            System.out.println("\n" + "=".repeat(60) + "\n");
+            System.out.println("5. PROOF-OF-WORK MINING");
+            System.out.println("Finding a nonce whose double SHA-256 has " + POW_DIFFICULTY_BITS + " leading zero bits");
+            testProofOfWork(userInput);
+
+            removeEmptyCheckpointDir();
         } catch (Exception e) {
             System.err.println("Error: " + e.getMessage());
             e.printStackTrace();
@@ -49,51 +79,32 @@ public class Q1_ii {
     /**
      * Demonstrates pre-image resistance by trying to find input for target hash
      */
-    private static void testPreImageResistance(String userInput) throws NoSuchAlgorithmException {
+    private static void testPreImageResistance(String userInput) {
         // Define target - hash of a known short string
-        String targetHash = computeHash(userInput);
+        Hash256 targetHash = ShaHash.hash256(userInput);
 
         System.out.println("Target hash (hash of \"" + userInput + "\"):");
-        System.out.println(targetHash);
+        System.out.println(targetHash.toHex());
         System.out.println();
         
         System.out.println("Attempting to find pre-image...");
-        System.out.println("Testing random strings to find input that produces this hash:");
-        
-        long startTime = System.currentTimeMillis();
-        int attempts = 0;
-        boolean found = false;
-        String foundInput = null;
-        
-        while (attempts < MAX_ITERATIONS && !found && 
-               (System.currentTimeMillis() - startTime) < TIME_LIMIT_SECONDS * 1000) {
-            
-            // Generate random input string
-            String testInput = generateSequentialString(attempts);
-
-            String testHash = computeHash(testInput);
-            
-            attempts++;
-            
-            // Show progress every 50,000 attempts
-            if (attempts % 50000 == 0) {
-                System.out.println("  Attempt " + attempts + ": \"" + testInput + "\" → " + 
-                                 testHash.substring(0, 16) + "...");
-            }
-            
-            if (testHash.equals(targetHash)) {
-                found = true;
-                foundInput = testInput;
-            }
-        }
+        System.out.println("Testing sequential strings on " + WORKERS + " workers to find input that produces this hash:");
         
-        long endTime = System.currentTimeMillis();
-        double timeElapsed = (endTime - startTime) / 1000.0;
+        SearchCheckpoint checkpoint = new SearchCheckpoint(CHECKPOINT_DIR.resolve("preimage.ckpt"),
+                ShaHash.hash256("preimage:" + targetHash.toHex()));
+        AtomicLong progress = new AtomicLong(resumedAttempts(checkpoint));
+        ParallelSearch.Result result = new ParallelSearch(WORKERS).search(
+                0, MAX_ITERATIONS, TIME_LIMIT_SECONDS * 1000L,
+                workerId -> new DigestMatcher(targetHash, null, progress, null),
+                checkpoint, CHECKPOINT_INTERVAL_SECONDS * 1000L);
+        boolean found = result.isFound();
+        String foundInput = found ? generateSequentialString(result.getFoundIndex()) : null;
         
         System.out.println("\n--- PRE-IMAGE RESISTANCE RESULTS ---");
-        System.out.println("Attempts made: " + String.format("%,d", attempts));
-        System.out.println("Time elapsed: " + String.format("%.2f", timeElapsed) + " seconds");
-        System.out.println("Rate: " + String.format("%,.0f", attempts / timeElapsed) + " hashes/second");
+        printCheckpointStatus(result, checkpoint);
+        System.out.println("Attempts made: " + String.format("%,d", result.getTotalAttempts()));
+        System.out.println("Time elapsed: " + String.format("%.2f", result.getElapsedSeconds()) + " seconds");
+        result.printRates();
         
         if (found) {
             System.out.println("PRE-IMAGE FOUND: \"" + foundInput + "\"");
@@ -107,61 +118,44 @@ public class Q1_ii {
     /**
      * Demonstrates second pre-image resistance
      */
-    private static void testSecondPreImageResistance(String userInput) throws NoSuchAlgorithmException {
+    private static void testSecondPreImageResistance(String userInput) {
         // Use a known input
-        String targetHash = computeHash(userInput);
+        Hash256 targetHash = ShaHash.hash256(userInput);
 
         System.out.println("Original input: \"" + userInput + "\"");
-        System.out.println("Target hash: " + targetHash);
+        System.out.println("Target hash: " + targetHash.toHex());
         System.out.println();
         
         System.out.println("Attempting to find second pre-image...");
-        System.out.println("Looking for different input that produces the same hash:");
+        System.out.println("Looking for different input that produces the same hash on " + WORKERS + " workers:");
         
-        long startTime = System.currentTimeMillis();
-        int attempts = 0;
-        boolean found = false;
-        String foundInput = null;
-        
-        while (attempts < MAX_ITERATIONS && !found && 
-               (System.currentTimeMillis() - startTime) < TIME_LIMIT_SECONDS * 1000) {
-            
-            // Generate different input string
-            String testInput = generateSequentialString(attempts);
-            
-            // Skip if same as original
-            if (testInput.equals(userInput)) {
-                continue;
-            }
-            
-            String testHash = computeHash(testInput);
-            attempts++;
-            
-            // Show progress every 50,000 attempts
-            if (attempts % 50000 == 0) {
-                System.out.println("  Attempt " + attempts + ": \"" + testInput + "\" → " + 
-                                 testHash.substring(0, 16) + "...");
-            }
-            
-            if (testHash.equals(targetHash)) {
-                found = true;
-                foundInput = testInput;
-            }
-        }
-        
-        long endTime = System.currentTimeMillis();
-        double timeElapsed = (endTime - startTime) / 1000.0;
+        SearchCheckpoint checkpoint = new SearchCheckpoint(CHECKPOINT_DIR.resolve("second-preimage.ckpt"),
+                ShaHash.hash256("second-preimage:" + targetHash.toHex()));
+        AtomicLong progress = new AtomicLong(resumedAttempts(checkpoint));
+        LongAdder skipped = new LongAdder();
+        ParallelSearch.Result result = new ParallelSearch(WORKERS).search(
+                0, MAX_ITERATIONS, TIME_LIMIT_SECONDS * 1000L,
+                // Skip the original input itself, without counting it as an attempt
+                workerId -> new DigestMatcher(targetHash, userInput.getBytes(StandardCharsets.UTF_8), progress, skipped),
+                checkpoint, CHECKPOINT_INTERVAL_SECONDS * 1000L);
+        boolean found = result.isFound();
+        String foundInput = found ? generateSequentialString(result.getFoundIndex()) : null;
         
         System.out.println("\n--- SECOND PRE-IMAGE RESISTANCE RESULTS ---");
         System.out.println("Original input: \"" + userInput + "\"");
-        System.out.println("Attempts made: " + String.format("%,d", attempts));
-        System.out.println("Time elapsed: " + String.format("%.2f", timeElapsed) + " seconds");
-        System.out.println("Rate: " + String.format("%,.0f", attempts / timeElapsed) + " hashes/second");
+        printCheckpointStatus(result, checkpoint);
+        System.out.println("Attempts made: " + String.format("%,d", result.getTotalAttempts() - skipped.sum()));
+        System.out.println("Time elapsed: " + String.format("%.2f", result.getElapsedSeconds()) + " seconds");
+        result.printRates();
+        if (skipped.sum() > 0) {
+            System.out.println("The original input was among the candidates and is not counted as an attempt,"
+                             + " the rates above include hashing it");
+        }
         
         if (found) {
             System.out.println("SECOND PRE-IMAGE FOUND: \"" + foundInput + "\"");
             System.out.println("   Both \"" + userInput + "\" and \"" + foundInput + "\" hash to:");
-            System.out.println("   " + targetHash);
+            System.out.println("   " + targetHash.toHex());
         } else {
             System.out.println("NO SECOND PRE-IMAGE FOUND");
             System.out.println("   This demonstrates strong second pre-image resistance");
@@ -171,46 +165,135 @@ public class Q1_ii {
     /**
      * Demonstrates collision resistance using birthday paradox approach
      */
-    private static void testCollisionResistance(String userInput) throws NoSuchAlgorithmException {
+    private static void testCollisionResistance(String userInput) {
         System.out.println("Using birthday paradox approach to find collisions...");
         System.out.println("Storing hashes and looking for duplicates:");
         
-        Map<String, String> hashToInput = new HashMap<>();
+        // Resume from a checkpoint only together with the table file it refers to
+        Path tableFile = CHECKPOINT_DIR.resolve("collision.table");
+        SearchCheckpoint checkpoint = new SearchCheckpoint(CHECKPOINT_DIR.resolve("collision.ckpt"),
+                ShaHash.hash256("collision:" + MAX_ITERATIONS));
+        SearchCheckpoint.State saved = checkpoint.load();
+        
+        Map<Hash256, Long> hashToIndex = new HashMap<>();
+        BirthdayTable table = null;
+        long startIndex = 0;
+        long previousAttempts = 0;
+        if (saved != null && Files.isRegularFile(tableFile)) {
+            table = BirthdayTable.openFile(tableFile, MAX_ITERATIONS);
+            hashToIndex = null;
+            startIndex = saved.next(0);
+            previousAttempts = saved.attempts(0);
+            System.out.println("  Resumed from checkpoint at attempt " + String.format("%,d", previousAttempts)
+                             + " with " + String.format("%,d", table.size()) + " stored hashes");
+        } else {
+            checkpoint.clear();
+            BirthdayTable.deleteFile(tableFile);
+        }
+        
+        CandidateGenerator generator = new CandidateGenerator(startIndex);
+        CandidateGenerator verifier = new CandidateGenerator(0);
         long startTime = System.currentTimeMillis();
-        int attempts = 0;
+        long nextCheckpoint = startTime + CHECKPOINT_INTERVAL_SECONDS * 1000L;
+        long attempts = 0;
         boolean collisionFound = false;
-        String input1 = userInput, input2 = null, collisionHash = null;
+        String input1 = userInput, input2 = null;
+        Hash256 collisionHash = null;
         
-        while (attempts < MAX_ITERATIONS && !collisionFound && 
+        while (previousAttempts + attempts < MAX_ITERATIONS && !collisionFound && 
                (System.currentTimeMillis() - startTime) < TIME_LIMIT_SECONDS * 1000) {
             
-            // Generate input string
-            String testInput = generateSequentialString(attempts);
-            String testHash = computeHash(testInput);
+            // Hash the next candidate straight from the generator's buffer
+            if (attempts > 0) {
+                generator.next();
+            }
+            Hash256 testHash = ShaHash.hash256(generator.buffer(), generator.offset(), generator.length());
             attempts++;
             
             // Show progress every 50,000 attempts
-            if (attempts % 50000 == 0) {
-                System.out.println("  Attempt " + attempts + ": \"" + testInput + "\" → " + 
-                                 testHash.substring(0, 16) + "...");
+            if ((previousAttempts + attempts) % 50000 == 0) {
+                System.out.println("  Attempt " + (previousAttempts + attempts) + ": \"" + generator + "\" → " + 
+                                 testHash.toHex().substring(0, 16) + "...");
             }
             
             // Check for collision
-            if (hashToInput.containsKey(testHash)) {
+            long previousIndex;
+            if (table == null) {
+                Long stored = hashToIndex.putIfAbsent(testHash, generator.index());
+                previousIndex = stored == null ? -1 : stored;
+
+                if (hashToIndex.size() >= OFF_HEAP_THRESHOLD) {
+                    table = moveToOffHeap(hashToIndex, tableFile);
+                    hashToIndex = null;
+                    System.out.println("  Switched to off-heap table after " + String.format("%,d", table.size())
+                                     + " entries");
+                }
+            } else {
+                // Table keys are 64-bit prefixes, confirm by recomputing the stored candidate's hash.
+                // After a resume the table may already hold this very index, that is not a collision.
+                long currentIndex = generator.index();
+                previousIndex = table.findOrInsert(testHash.prefix64(), currentIndex, storedIndex -> {
+                    if (storedIndex == currentIndex) {
+                        return true;
+                    }
+                    verifier.seek(storedIndex);
+                    return ShaHash.hash256(verifier.buffer(), verifier.offset(), verifier.length()).equals(testHash);
+                });
+                if (previousIndex == currentIndex) {
+                    previousIndex = -1;
+                }
+            }
+
+            if (System.currentTimeMillis() >= nextCheckpoint) {
+                if (table == null) {
+                    // Only the file-backed table survives a restart, so the first checkpoint moves the hashes there
+                    table = moveToOffHeap(hashToIndex, tableFile);
+                    hashToIndex = null;
+                }
+                saveCollisionCheckpoint(checkpoint, table, generator.index() + 1, previousAttempts + attempts);
+                nextCheckpoint = System.currentTimeMillis() + CHECKPOINT_INTERVAL_SECONDS * 1000L;
+            }
+
+            if (previousIndex >= 0) {
                 collisionFound = true;
-                input2 = testInput;
+                input1 = generateSequentialString(previousIndex);
+                input2 = generator.toString();
                 collisionHash = testHash;
-            } else {
-                hashToInput.put(testHash, testInput);
             }
         }
         
         long endTime = System.currentTimeMillis();
         double timeElapsed = (endTime - startTime) / 1000.0;
         
+        // Keep progress only when the time limit cut the run short
+        boolean unfinished = !collisionFound && previousAttempts + attempts < MAX_ITERATIONS;
+        if (unfinished) {
+            if (table == null) {
+                table = moveToOffHeap(hashToIndex, tableFile);
+                hashToIndex = null;
+            }
+            saveCollisionCheckpoint(checkpoint, table, generator.index() + 1, previousAttempts + attempts);
+        } else {
+            checkpoint.clear();
+            BirthdayTable.deleteFile(tableFile);
+        }
+        
         System.out.println("\n--- COLLISION RESISTANCE RESULTS ---");
+        if (previousAttempts > 0) {
+            System.out.println("Attempts in earlier runs: " + String.format("%,d", previousAttempts));
+        }
+        if (unfinished) {
+            System.out.println("Progress saved to " + checkpoint.getFile() + ", run again to continue");
+        }
         System.out.println("Attempts made: " + String.format("%,d", attempts));
-        System.out.println("Unique hashes stored: " + String.format("%,d", hashToInput.size()));
+        System.out.println("Unique hashes stored: "
+                         + String.format("%,d", table != null ? table.size() : hashToIndex.size()));
+        if (table != null) {
+            System.out.println("Off-heap table: " + String.format("%,d", table.bytesAllocated()) + " bytes, "
+                             + String.format("%.1f", table.bytesPerEntry()) + " bytes/entry, "
+                             + table.resizeCount() + " resizes in "
+                             + String.format("%.3f", table.resizeSeconds()) + " seconds");
+        }
         System.out.println("Time elapsed: " + String.format("%.2f", timeElapsed) + " seconds");
         System.out.println("Rate: " + String.format("%,.0f", attempts / timeElapsed) + " hashes/second");
         
@@ -218,7 +301,7 @@ public class Q1_ii {
             System.out.println("COLLISION FOUND!");
             System.out.println("   Input 1: \"" + input1 + "\"");
             System.out.println("   Input 2: \"" + input2 + "\"");
-            System.out.println("   Same hash: " + collisionHash);
+            System.out.println("   Same hash: " + collisionHash.toHex());
             System.out.println("   This is extremely unlikely for SHA-256!");
         } else {
             System.out.println("NO COLLISIONS FOUND");
@@ -229,10 +312,77 @@ public class Q1_ii {
         System.out.println("\nBirthday Paradox Analysis:");
         System.out.println("For SHA-256 (256-bit output):");
         System.out.println("Expected attempts for 50% collision probability: 2^128 ≈ 3.4 × 10^38");
-        System.out.println("Our attempts: " + String.format("%,d", attempts));
+        System.out.println("Our attempts: " + String.format("%,d", previousAttempts + attempts));
         System.out.println("Probability of finding collision: ~0% (negligible)");
     }
     
+    /**
+     * Copies the stored hashes into a file-backed off-heap table keyed by 64-bit prefix
+     */
+    private static BirthdayTable moveToOffHeap(Map<Hash256, Long> hashToIndex, Path tableFile) {
+        BirthdayTable.deleteFile(tableFile);
+        BirthdayTable table = BirthdayTable.openFile(tableFile, MAX_ITERATIONS);
+        for (Map.Entry<Hash256, Long> entry : hashToIndex.entrySet()) {
+            // Entries are already known to be distinct, nothing to confirm
+            table.findOrInsert(entry.getKey().prefix64(), entry.getValue(), storedIndex -> false);
+        }
+        return table;
+    }
+    
+    /**
+     * Flushes the table before recording the next index, so the saved state
+     * never refers to entries that are not on disk
+     */
+    private static void saveCollisionCheckpoint(SearchCheckpoint checkpoint, BirthdayTable table,
+                                                long nextIndex, long totalAttempts) {
+        table.force();
+        checkpoint.save(new SearchCheckpoint.State(new long[] { nextIndex }, new long[] { MAX_ITERATIONS },
+                new long[] { totalAttempts }, 0));
+    }
+    
+    /**
+     * Prints whether a parallel search resumed from or saved a checkpoint
+     */
+    private static void printCheckpointStatus(ParallelSearch.Result result, SearchCheckpoint checkpoint) {
+        if (result.getPreviousAttempts() > 0) {
+            System.out.println("Attempts in earlier runs: " + String.format("%,d", result.getPreviousAttempts()));
+        }
+        if (result.isTimedOut() && !result.isFound()) {
+            System.out.println("Progress saved to " + checkpoint.getFile() + ", run again to continue");
+        }
+    }
+    
+    /**
+     * Finds a collision on the first bits of SHA-256 with parallel distinguished
+     * point search, memory stays bounded by the stored distinguished points
+     */
+    private static void testTruncatedCollision() {
+        int distinguishedBits = CollisionSearch.defaultDistinguishedBits(COLLISION_TRUNCATION_BITS);
+        System.out.println("Walking hash chains, storing only points with " + distinguishedBits + " low zero bits...");
+
+        CollisionSearch.Result result = new CollisionSearch(COLLISION_TRUNCATION_BITS, distinguishedBits, WORKERS)
+                .search(TIME_LIMIT_SECONDS * 1000L, System.nanoTime());
+
+        System.out.println("\n--- TRUNCATED COLLISION RESULTS ---");
+        result.print();
+        System.out.println("   Full 256-bit hashes still differ, truncation is what makes this feasible");
+    }
+    
+    /**
+     * Mines a nonce for the user input as block header, shows how the expected
+     * work 2^difficulty compares with the measured time
+     */
+    private static void testProofOfWork(String userInput) {
+        System.out.println("Block header: \"" + userInput + "\" + 8-byte nonce");
+        
+        ProofOfWork.Result result = new ProofOfWork(userInput, POW_DIFFICULTY_BITS, true, WORKERS)
+                .mine(TIME_LIMIT_SECONDS * 1000L);
+        
+        System.out.println("\n--- PROOF-OF-WORK RESULTS ---");
+        result.print();
+        System.out.println("   Each extra bit of difficulty doubles the expected work");
+    }
+    
     /**
      * Generates a sequential string based on attempt number using all ASCII
      * characters
@@ -240,57 +390,146 @@ public class Q1_ii {
      * letters, numbers)
      * Order: " ", "!", "\"", "#", ..., "~", " ", " !", etc.
      */
-    private static String generateSequentialString(int index) {
+    private static String generateSequentialString(long index) {
       if (index < 0)
         return " "; // Start with space (ASCII 32)
 
-      // Define ASCII printable character range (32-126 = 95 characters)
-      int ASCII_START = 32; // Space character
-      int ASCII_END = 126; // Tilde character ~
-      int ASCII_RANGE = ASCII_END - ASCII_START + 1; // 95 characters
+      return CandidateGenerator.candidateAt(index);
+    }
+
+    /**
+     * Removes the checkpoint directory once every search has finished and cleared its files
+     */
+    private static void removeEmptyCheckpointDir() {
+        try {
+            Files.deleteIfExists(CHECKPOINT_DIR);
+        } catch (IOException e) {
+            // A search left progress to resume, or a file is still mapped
+        }
+    }
 
-      StringBuilder result = new StringBuilder();
+    /**
+     * Attempts already made by the run saved in checkpoint, so progress lines keep counting after a restart
+     */
+    private static long resumedAttempts(SearchCheckpoint checkpoint) {
+        SearchCheckpoint.State saved = checkpoint.load();
+        return saved == null ? 0 : saved.totalAttempts();
+    }
 
-      // For single characters (first 95 attempts)
-      if (index < ASCII_RANGE) {
-        return String.valueOf((char) (ASCII_START + index));
-      }
+    /**
+     * Hashes odometer candidates straight from the generator buffer and
+     * compares raw digests, one instance per search worker. Blocks are hashed
+     * in batches so a multi-buffer BatchHasher can fill its SIMD lanes.
+     * Workers share one attempt counter and whichever worker passes a
+     * multiple of 50,000 prints the progress line for it. The excluded input
+     * is not counted there, only in skipped.
+     */
+    private static class DigestMatcher implements ParallelSearch.CandidateTest {
+        private static final int BATCH = 256;
 
-      // For multi-character strings, use base-95 representation
-      int remaining = index - ASCII_RANGE; // Offset for single char strings
-      int length = 2; // Start with 2-character strings
-      long rangeSize = (long) ASCII_RANGE * ASCII_RANGE; // 95^2 for 2-char strings
+        private final CandidateGenerator generator = new CandidateGenerator(0);
+        private final byte[] target;
+        private final byte[] excluded; // Input that does not count as a match, may be null
+        private final AtomicLong progress; // Attempts by all workers, may be null
+        private final LongAdder skipped; // Times the excluded input came up, may be null
+        private final byte[] digest = new byte[Hash256.BYTES];
 
-      // Find the appropriate string length
-      while (remaining >= rangeSize) {
-        remaining -= rangeSize;
-        length++;
-        rangeSize *= ASCII_RANGE;
-      }
+        private final BatchHasher hasher = ShaHash.newBatchHasher();
+        private final byte[] batchInput = new byte[BATCH * CandidateGenerator.MAX_LENGTH];
+        private final int[] batchOffsets = new int[BATCH];
+        private final int[] batchLengths = new int[BATCH];
+        private final byte[] batchDigests = new byte[BATCH * Hash256.BYTES];
 
-      // Convert to base-95 representation
-      for (int i = 0; i < length; i++) {
-        result.insert(0, (char) (ASCII_START + (remaining % ASCII_RANGE)));
-        remaining /= ASCII_RANGE;
-      }
+        DigestMatcher(Hash256 target, byte[] excluded, AtomicLong progress, LongAdder skipped) {
+            this.target = target.toBytes();
+            this.excluded = excluded;
+            this.progress = progress;
+            this.skipped = skipped;
+        }
 
-      return result.toString();
-    }
-    
-    /**
-     * Computes SHA-256 hash of input string
-     */
-    private static String computeHash(String input) throws NoSuchAlgorithmException {
-        byte[] hashBytes = digest.digest(input.getBytes());
-        
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : hashBytes) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
+        @Override
+        public boolean test(long index) {
+            generator.moveTo(index);
+            byte[] candidate = generator.buffer();
+            int offset = generator.offset();
+            int length = generator.length();
+
+            if (isExcluded(candidate, offset, length)) {
+                countSkip();
+                return false;
+            }
+            ShaHash.sha256(candidate, offset, length, digest, 0);
+            return Arrays.equals(digest, target);
+        }
+
+        @Override
+        public long testBlock(long from, long to) {
+            for (long batchStart = from; batchStart < to; batchStart += BATCH) {
+                int count = (int) Math.min(BATCH, to - batchStart);
+                generator.moveTo(batchStart);
+                int position = 0;
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) {
+                        generator.next();
+                    }
+                    int length = generator.length();
+                    System.arraycopy(generator.buffer(), generator.offset(), batchInput, position, length);
+                    batchOffsets[i] = position;
+                    batchLengths[i] = length;
+                    position += length;
+                }
+
+                hasher.hash(batchInput, batchOffsets, batchLengths, count, batchDigests, 0);
+                // Only the excluded input itself can match the target and be skipped
+                int skippedAt = -1;
+                for (int i = 0; i < count; i++) {
+                    if (Arrays.equals(batchDigests, i * Hash256.BYTES, (i + 1) * Hash256.BYTES,
+                                target, 0, Hash256.BYTES)) {
+                        if (!isExcluded(batchInput, batchOffsets[i], batchLengths[i])) {
+                            reportProgress(i + 1, skippedAt);
+                            return batchStart + i;
+                        }
+                        countSkip();
+                        skippedAt = i;
+                    }
+                }
+                reportProgress(count, skippedAt);
             }
-            hexString.append(hex);
+            return -1;
+        }
+
+        private void countSkip() {
+            if (skipped != null) {
+                skipped.increment();
+            }
+        }
+
+        /**
+         * Counts the first tested entries of the batch, less the one at
+         * skippedAt if any, and prints the entry that brought the shared
+         * count to each multiple of PROGRESS_INTERVAL
+         */
+        private void reportProgress(int tested, int skippedAt) {
+            if (progress == null) {
+                return;
+            }
+            int counted = skippedAt >= 0 ? tested - 1 : tested;
+            long before = progress.getAndAdd(counted);
+            for (long attempt = (before / PROGRESS_INTERVAL + 1) * PROGRESS_INTERVAL;
+                    attempt <= before + counted; attempt += PROGRESS_INTERVAL) {
+                int i = (int) (attempt - before - 1);
+                if (skippedAt >= 0 && i >= skippedAt) {
+                    i++;
+                }
+                String candidate = new String(batchInput, batchOffsets[i], batchLengths[i], StandardCharsets.UTF_8);
+                System.out.println("  Attempt " + attempt + ": \"" + candidate + "\" → " +
+                                 ShaHash.toHex(batchDigests, i * Hash256.BYTES, 8) + "...");
+            }
+        }
+
+        private boolean isExcluded(byte[] candidate, int offset, int length) {
+            return excluded != null
+                    && Arrays.equals(candidate, offset, offset + length, excluded, 0, excluded.length);
         }
-        return hexString.toString();
     }
 }
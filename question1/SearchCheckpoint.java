@@ -0,0 +1,208 @@
+package question1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import utils.Hash256;
+
+/**
+ * Progress of a long-running search kept in a small memory-mapped file
+ *
+ * Records the unfinished index range and attempt count of every worker, tagged
+ * with a job id so a restarted search only resumes its own state. Layout:
+ * magic, version, job id (32 bytes), accumulated nanos, range count, then
+ * (next, end, attempts) per range. The magic is cleared while writing and set
+ * again after the rest is forced to disk, so a torn write reads as no state.
+ */
+public class SearchCheckpoint {
+
+    private static final int MAGIC = 0x51314350; // "Q1CP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 56;
+    private static final int RANGE_BYTES = 24;
+
+    private final Path file;
+    private final Hash256 jobId;
+    private MappedByteBuffer buffer;
+
+    /**
+     * @param jobId identifies the search, state saved under another id is ignored
+     */
+    public SearchCheckpoint(Path file, Hash256 jobId) {
+        this.file = file;
+        this.jobId = jobId;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Loads the saved state for this job, or returns null when there is none
+     */
+    public State load() {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            // Read into the heap rather than data, so a file with no state for us can still be deleted
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                return null;
+            }
+            byte[] id = new byte[Hash256.BYTES];
+            for (int i = 0; i < id.length; i++) {
+                id[i] = data.get(8 + i);
+            }
+            if (!Hash256.fromBytes(id).equals(jobId)) {
+                return null;
+            }
+
+            long elapsedNanos = data.getLong(40);
+            int rangeCount = data.getInt(48);
+            if (rangeCount < 1 || data.capacity() < HEADER_BYTES + (long) rangeCount * RANGE_BYTES) {
+                return null;
+            }
+            long[] next = new long[rangeCount];
+            long[] end = new long[rangeCount];
+            long[] attempts = new long[rangeCount];
+            for (int r = 0; r < rangeCount; r++) {
+                int offset = HEADER_BYTES + r * RANGE_BYTES;
+                next[r] = data.getLong(offset);
+                end[r] = data.getLong(offset + 8);
+                attempts[r] = data.getLong(offset + 16);
+            }
+            return new State(next, end, attempts, elapsedNanos);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * Writes the given state and forces it to disk
+     */
+    public void save(State state) {
+        int rangeCount = state.next.length;
+        long size = HEADER_BYTES + (long) rangeCount * RANGE_BYTES;
+        try {
+            if (buffer == null || buffer.capacity() != size) {
+                Path parent = file.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                // Mapping grows the file when needed. It is never truncated, since Windows
+                // refuses to shrink a mapped file; the range count says how much is in use.
+                buffer = map(size);
+            }
+
+            buffer.putInt(0, 0);
+            buffer.force();
+
+            buffer.putInt(4, VERSION);
+            byte[] id = jobId.toBytes();
+            for (int i = 0; i < id.length; i++) {
+                buffer.put(8 + i, id[i]);
+            }
+            buffer.putLong(40, state.elapsedNanos);
+            buffer.putInt(48, rangeCount);
+            for (int r = 0; r < rangeCount; r++) {
+                int offset = HEADER_BYTES + r * RANGE_BYTES;
+                buffer.putLong(offset, state.next[r]);
+                buffer.putLong(offset + 8, state.end[r]);
+                buffer.putLong(offset + 16, state.attempts[r]);
+            }
+            buffer.force();
+
+            buffer.putInt(0, MAGIC);
+            buffer.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * Forgets the saved state, called once a search has completed. The magic
+     * is cleared first, so the file reads as no state even where it cannot be
+     * deleted yet: Windows keeps a mapped file until the buffer is collected.
+     */
+    public void clear() {
+        try {
+            if (buffer != null) {
+                buffer.putInt(0, 0);
+                buffer.force();
+                buffer = null;
+            } else if (Files.isRegularFile(file)) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.write(ByteBuffer.allocate(Integer.BYTES), 0);
+                    channel.force(false);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot clear checkpoint " + file, e);
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Still mapped, a later clear() removes it
+        }
+    }
+
+    private MappedByteBuffer map(long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Unfinished ranges [next, end) with the attempts already made by each worker
+     */
+    public static class State {
+        final long[] next;
+        final long[] end;
+        final long[] attempts;
+        final long elapsedNanos;
+
+        public State(long[] next, long[] end, long[] attempts, long elapsedNanos) {
+            if (next.length != end.length || next.length != attempts.length) {
+                throw new IllegalArgumentException("Range arrays must have the same length");
+            }
+            this.next = next;
+            this.end = end;
+            this.attempts = attempts;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int rangeCount() {
+            return next.length;
+        }
+
+        public long next(int range) {
+            return next[range];
+        }
+
+        public long end(int range) {
+            return end[range];
+        }
+
+        public long attempts(int range) {
+            return attempts[range];
+        }
+
+        public long totalAttempts() {
+            return Arrays.stream(attempts).sum();
+        }
+
+        public long elapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package question2;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+import question2.MerkleTree.HashMode;
+import question2.Q2_ii.ProofNode;
+import utils.Hash256;
+import utils.ShaHash;
+
+/**
+ * Verifies many Merkle proofs at once, in parallel and without printing
+ *
+ * Every parent hash computed on a successful proof is remembered under its
+ * (left child, right child) pair. Later proofs still walk their whole path
+ * and compare the result with their root, so a claim is valid exactly when
+ * Q2_iii.verifyMerkleProof accepts it, but each step whose pair is already
+ * known is a map lookup instead of a SHA-256. Proofs that share upper paths
+ * therefore only hash the part below the shared node. Failed proofs add
+ * nothing to the cache. Safe to use from several threads.
+ */
+public class BatchProofVerifier {
+
+  /**
+   * Default cap on remembered parents, about 150 bytes each. The cache is
+   * emptied when it fills up.
+   */
+  public static final int DEFAULT_MAX_CACHED_NODES = 1 << 20;
+
+  // Claims per fork/join chunk, each one costs up to a few dozen hashes
+  private static final int MIN_CHUNK = 16;
+
+  /**
+   * One item, its proof and the root it claims to belong to
+   */
+  public static class Claim {
+    private final String item;
+    private final List<ProofNode> proof;
+    private final Hash256 root;
+
+    public Claim(String item, List<ProofNode> proof, Hash256 root) {
+      this.item = item;
+      this.proof = proof;
+      this.root = root;
+    }
+
+    public String getItem() {
+      return item;
+    }
+
+    public List<ProofNode> getProof() {
+      return proof;
+    }
+
+    public Hash256 getRoot() {
+      return root;
+    }
+  }
+
+  private final ForkJoinPool pool;
+  private final int maxCachedNodes;
+  private final boolean verbose;
+  private final HashMode hashMode;
+  // Parents of pairs seen on valid proofs, the same for every root
+  private final Map<NodePair, Hash256> parents = new ConcurrentHashMap<>();
+  private final LongAdder hashes = new LongAdder();
+  private final LongAdder cacheHits = new LongAdder();
+
+  public BatchProofVerifier() {
+    this(ForkJoinPool.commonPool(), DEFAULT_MAX_CACHED_NODES, false);
+  }
+
+  /**
+   * @param pool pool the claims are spread over, null to verify on the calling thread
+   * @param maxCachedNodes remembered parents, 0 disables the cache
+   * @param verbose print a summary line per batch
+   */
+  public BatchProofVerifier(ForkJoinPool pool, int maxCachedNodes, boolean verbose) {
+    this(pool, maxCachedNodes, verbose, HashMode.HEX_CONCAT);
+  }
+
+  /**
+   * @param hashMode node rule of the trees the claims come from
+   */
+  public BatchProofVerifier(ForkJoinPool pool, int maxCachedNodes, boolean verbose, HashMode hashMode) {
+    this.pool = pool;
+    this.maxCachedNodes = maxCachedNodes;
+    this.verbose = verbose;
+    this.hashMode = Objects.requireNonNull(hashMode, "hashMode");
+  }
+
+  /**
+   * Verifies every claim
+   * @return bit i set when claim i is valid
+   */
+  public BitSet verifyAll(List<Claim> claims) {
+    long start = System.nanoTime();
+    long hashesBefore = hashes.sum();
+    boolean[] valid = new boolean[claims.size()];
+    MerkleTree.forRange(claims.size(), pool, 2, MIN_CHUNK, (from, to) -> {
+      for (int i = from; i < to; i++) {
+        valid[i] = verify(claims.get(i));
+      }
+    });
+
+    BitSet result = new BitSet(claims.size());
+    for (int i = 0; i < valid.length; i++) {
+      if (valid[i]) {
+        result.set(i);
+      }
+    }
+    if (verbose) {
+      System.out.println("Verified " + result.cardinality() + "/" + claims.size() + " proofs with "
+          + (hashes.sum() - hashesBefore) + " hashes in "
+          + String.format("%.2f", (System.nanoTime() - start) / 1e6) + " ms");
+    }
+    return result;
+  }
+
+  /**
+   * Verifies one claim, using and extending the parent cache
+   */
+  public boolean verify(Claim claim) {
+    List<ProofNode> proof = claim.getProof();
+    boolean caching = maxCachedNodes > 0;
+
+    // Pairs hashed here, remembered only if the whole proof checks out
+    NodePair[] computed = caching ? new NodePair[proof.size()] : null;
+    Hash256[] computedParents = caching ? new Hash256[proof.size()] : null;
+    int computedCount = 0;
+
+    Hash256 current = ShaHash.hash256(claim.getItem());
+    int hashed = 1;
+    for (ProofNode sibling : proof) {
+      NodePair pair = sibling.isLeft()
+          ? new NodePair(sibling.getHash(), current)
+          : new NodePair(current, sibling.getHash());
+      Hash256 parent = caching ? parents.get(pair) : null;
+      if (parent != null) {
+        cacheHits.increment();
+      } else {
+        parent = hashMode.combine(pair.left, pair.right);
+        hashed++;
+        if (caching) {
+          computed[computedCount] = pair;
+          computedParents[computedCount++] = parent;
+        }
+      }
+      current = parent;
+    }
+    hashes.add(hashed);
+
+    boolean valid = current.equals(claim.getRoot());
+    if (valid && computedCount > 0) {
+      if (parents.size() + computedCount > maxCachedNodes) {
+        parents.clear();
+      }
+      for (int i = 0; i < computedCount; i++) {
+        parents.put(computed[i], computedParents[i]);
+      }
+    }
+    return valid;
+  }
+
+  /**
+   * SHA-256 computations so far, leaf hashes included
+   */
+  public long hashesComputed() {
+    return hashes.sum();
+  }
+
+  /**
+   * Proof steps answered from the cache instead of hashed
+   */
+  public long cacheHits() {
+    return cacheHits.sum();
+  }
+
+  public void clearCache() {
+    parents.clear();
+  }
+
+  /**
+   * Left and right child of one parent
+   */
+  private static final class NodePair {
+    private final Hash256 left;
+    private final Hash256 right;
+
+    NodePair(Hash256 left, Hash256 right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof NodePair)) {
+        return false;
+      }
+      NodePair pair = (NodePair) other;
+      return left.equals(pair.left) && right.equals(pair.right);
+    }
+
+    @Override
+    public int hashCode() {
+      return left.hashCode() * 31 + right.hashCode();
+    }
+  }
+
+  /**
+   * Self-check against Q2_iii.verifyMerkleProof with honest claims, proofs
+   * of other leaves, empty proofs and wrong roots, in both hash modes
+   */
+  public static void main(String[] args) {
+    Random random = new Random(42);
+    List<String> items = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      items.add("tx" + i);
+    }
+    int checks = 0;
+    for (HashMode hashMode : HashMode.values()) {
+      MerkleTree tree = new MerkleTree(items, hashMode, null, Integer.MAX_VALUE);
+      Hash256 otherRoot = ShaHash.hash256("not the root");
+      List<Claim> claims = new ArrayList<>();
+      for (int i = 0; i < 4000; i++) {
+        int index = random.nextInt(items.size());
+        int kind = random.nextInt(8);
+        List<ProofNode> proof = kind == 0 ? tree.proof(random.nextInt(items.size()))
+            : kind == 1 ? List.of()
+            : tree.proof(index);
+        claims.add(new Claim(items.get(index), proof, kind == 2 ? otherRoot : tree.root()));
+      }
+
+      BitSet expected = new BitSet(claims.size());
+      for (int i = 0; i < claims.size(); i++) {
+        Claim claim = claims.get(i);
+        if (Q2_iii.verifyMerkleProof(claim.getItem(), claim.getProof(), claim.getRoot().toHex(), hashMode, false)) {
+          expected.set(i);
+        }
+      }
+      BatchProofVerifier verifier = new BatchProofVerifier(ForkJoinPool.commonPool(), DEFAULT_MAX_CACHED_NODES,
+          false, hashMode);
+      // The second pass runs on a warm cache and must not change any answer
+      for (int pass = 0; pass < 2; pass++) {
+        BitSet actual = verifier.verifyAll(claims);
+        if (!actual.equals(expected)) {
+          actual.xor(expected);
+          throw new AssertionError(hashMode + " pass " + pass + " disagrees with Q2_iii on claims " + actual);
+        }
+        checks += claims.size();
+      }
+      System.out.println(hashMode + ": " + expected.cardinality() + "/" + claims.size() + " claims valid, "
+          + verifier.cacheHits() + " steps from the cache");
+    }
+    System.out.println("All " + checks + " checks match Q2_iii.verifyMerkleProof");
+  }
+}
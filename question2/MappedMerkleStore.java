@@ -0,0 +1,369 @@
+package question2;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import question2.MerkleTree.HashMode;
+import question2.Q2_ii.ProofNode;
+import utils.Hash256;
+import utils.ShaHash;
+
+/**
+ * Merkle tree kept on disk, one file of 32-byte slots per level
+ *
+ * Leaves are hashed straight into the level 0 file as they stream in, then
+ * each level is read back sequentially to write the one above, duplicating
+ * the last node of an odd level as Q2_i does. A small meta file written last
+ * records the leaf count, hash rule and root, so open() only maps the
+ * existing files and never rehashes. Levels are mapped read-only in 1 GiB
+ * windows and proofs read their siblings by offset, so the heap holds a few
+ * buffers and the window table whatever the leaf count; the page cache holds
+ * the rest. Proofs by leaf index cost O(log n) reads, while lookups by item
+ * scan the leaf level. Reads are safe from several threads.
+ */
+public class MappedMerkleStore implements Closeable {
+
+  static final String META_FILE = "merkle.meta";
+
+  private static final int MAGIC = 0x4d4b4c31; // "MKL1"
+  private static final int META_BYTES = 4 + 1 + 8 + 4 + Hash256.BYTES;
+  private static final int SLOT = Hash256.BYTES;
+  private static final long WINDOW_BYTES = 1L << 30; // whole slots, so no slot spans two windows
+  private static final int IO_BUFFER_BYTES = 1 << 20; // whole slot pairs
+  private static final int MAX_LEVELS = Long.SIZE;
+
+  private final Path directory;
+  private final HashMode hashMode;
+  private final long leafCount;
+  private final Hash256 root;
+  private final MappedLevel[] levels;
+
+  private MappedMerkleStore(Path directory, HashMode hashMode, long leafCount, Hash256 root, MappedLevel[] levels) {
+    this.directory = directory;
+    this.hashMode = hashMode;
+    this.leafCount = leafCount;
+    this.root = root;
+    this.levels = levels;
+  }
+
+  /**
+   * Builds a store in directory from the items, replacing any store already there
+   */
+  public static MappedMerkleStore build(Path directory, Iterator<String> items) throws IOException {
+    return build(directory, items, HashMode.HEX_CONCAT);
+  }
+
+  public static MappedMerkleStore build(Path directory, Iterator<String> items, HashMode hashMode) throws IOException {
+    Files.createDirectories(directory);
+    // Without a meta file a half-built store is never opened
+    Files.deleteIfExists(directory.resolve(META_FILE));
+
+    long size = writeLeaves(levelFile(directory, 0), items);
+    if (size == 0) {
+      throw new IllegalArgumentException("Data items cannot be null or empty");
+    }
+    long leafCount = size;
+    int levelCount = 1;
+    while (size > 1) {
+      size = writeParents(levelFile(directory, levelCount - 1), levelFile(directory, levelCount), size, hashMode);
+      levelCount++;
+    }
+    for (int stale = levelCount; stale < MAX_LEVELS; stale++) {
+      Files.deleteIfExists(levelFile(directory, stale));
+    }
+
+    byte[] rootSlot = new byte[SLOT];
+    try (FileChannel top = FileChannel.open(levelFile(directory, levelCount - 1), StandardOpenOption.READ)) {
+      readFully(top, ByteBuffer.wrap(rootSlot), 0);
+    }
+    writeMeta(directory, hashMode, leafCount, levelCount, Hash256.fromBytes(rootSlot));
+    return open(directory);
+  }
+
+  /**
+   * Builds from a UTF-8 text file, one leaf per line, without loading the file
+   */
+  public static MappedMerkleStore buildFromLines(Path directory, Path lines) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(lines, StandardCharsets.UTF_8)) {
+      return build(directory, reader.lines().iterator());
+    }
+  }
+
+  /**
+   * Maps a store written earlier by build, no hashing involved
+   */
+  public static MappedMerkleStore open(Path directory) throws IOException {
+    Path metaFile = directory.resolve(META_FILE);
+    if (!Files.exists(metaFile)) {
+      throw new NoSuchFileException(metaFile.toString(), null, "No complete Merkle store here");
+    }
+    ByteBuffer meta = ByteBuffer.wrap(Files.readAllBytes(metaFile));
+    if (meta.remaining() != META_BYTES || meta.getInt() != MAGIC) {
+      throw new IOException("Not a Merkle store meta file: " + metaFile);
+    }
+    int mode = meta.get();
+    long leafCount = meta.getLong();
+    int levelCount = meta.getInt();
+    if (mode < 0 || mode >= HashMode.values().length) {
+      throw new IOException("Unknown hash mode " + mode + " in " + metaFile);
+    }
+    if (leafCount < 1 || levelCount != levelCount(leafCount)) {
+      throw new IOException("Corrupt meta file " + metaFile + ": " + leafCount + " leaves in " + levelCount + " levels");
+    }
+    HashMode hashMode = HashMode.values()[mode];
+    byte[] rootSlot = new byte[SLOT];
+    meta.get(rootSlot);
+
+    MappedLevel[] levels = new MappedLevel[levelCount];
+    long size = leafCount;
+    for (int level = 0; level < levelCount; level++) {
+      levels[level] = new MappedLevel(levelFile(directory, level), size);
+      size = (size + 1) / 2;
+    }
+    return new MappedMerkleStore(directory, hashMode, leafCount, Hash256.fromBytes(rootSlot), levels);
+  }
+
+  /**
+   * Levels build writes for leafCount leaves, the leaves and the root included
+   */
+  private static int levelCount(long leafCount) {
+    int levelCount = 1;
+    for (long size = leafCount; size > 1; size = (size + 1) / 2) {
+      levelCount++;
+    }
+    return levelCount;
+  }
+
+  public Path directory() {
+    return directory;
+  }
+
+  public HashMode hashMode() {
+    return hashMode;
+  }
+
+  public Hash256 root() {
+    return root;
+  }
+
+  public long leafCount() {
+    return leafCount;
+  }
+
+  /**
+   * Number of levels including leaves and root
+   */
+  public int levelCount() {
+    return levels.length;
+  }
+
+  public long levelSize(int level) {
+    return levels[level].size;
+  }
+
+  /**
+   * Hash at index within level, level 0 being the leaf hashes
+   */
+  public Hash256 node(int level, long index) {
+    byte[] slot = new byte[SLOT];
+    levels[level].read(index, slot);
+    return Hash256.fromBytes(slot);
+  }
+
+  /**
+   * Same proof as Q2_ii.generateMerkleProof for the leaf at index
+   */
+  public List<ProofNode> proof(long index) {
+    if (index < 0 || index >= leafCount) {
+      throw new IndexOutOfBoundsException("Leaf index " + index + " out of range for " + leafCount + " leaves");
+    }
+    List<ProofNode> proof = new ArrayList<>(levels.length - 1);
+    for (int level = 0; level < levels.length - 1; level++) {
+      long sibling = (index & 1) == 1 ? index - 1 : Math.min(index + 1, levels[level].size - 1);
+      // Odd index means the sibling is on the left
+      proof.add(new ProofNode(node(level, sibling), (index & 1) == 1));
+      index >>>= 1;
+    }
+    return proof;
+  }
+
+  /**
+   * Proof for the first leaf holding item, found by scanning the leaf level
+   */
+  public List<ProofNode> proof(String item) {
+    long index = indexOf(item);
+    if (index == -1) {
+      throw new IllegalArgumentException("Target item '" + item + "' not found in data items");
+    }
+    return proof(index);
+  }
+
+  /**
+   * First leaf index holding item, or -1. O(n): no item index is kept, so
+   * this reads the whole leaf level through the page cache. Callers with
+   * large stores should keep their own item to index mapping and use
+   * proof(long).
+   */
+  public long indexOf(String item) {
+    byte[] wanted = ShaHash.hash256(item).toBytes();
+    byte[] slot = new byte[SLOT];
+    MappedLevel leaves = levels[0];
+    for (long index = 0; index < leaves.size; index++) {
+      leaves.read(index, slot);
+      if (Arrays.equals(slot, wanted)) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Drops the mappings, which the JVM unmaps once they are collected
+   */
+  @Override
+  public void close() {
+    for (MappedLevel level : levels) {
+      level.windows = null;
+    }
+  }
+
+  private static long writeLeaves(Path file, Iterator<String> items) throws IOException {
+    byte[] buffer = new byte[IO_BUFFER_BYTES];
+    int used = 0;
+    long count = 0;
+    try (FileChannel out = openForWrite(file)) {
+      while (items.hasNext()) {
+        ShaHash.sha256(items.next().getBytes(StandardCharsets.UTF_8), buffer, used);
+        used += SLOT;
+        count++;
+        if (used == buffer.length) {
+          writeFully(out, buffer, used);
+          used = 0;
+        }
+      }
+      writeFully(out, buffer, used);
+      out.force(false);
+    }
+    return count;
+  }
+
+  /**
+   * Hashes the size children in one level file into the level file above
+   * @return number of parents written
+   */
+  private static long writeParents(Path childFile, Path parentFile, long size, HashMode hashMode) throws IOException {
+    byte[] children = new byte[IO_BUFFER_BYTES];
+    byte[] parents = new byte[IO_BUFFER_BYTES / 2];
+    long read = 0;
+    try (FileChannel in = FileChannel.open(childFile, StandardOpenOption.READ);
+        FileChannel out = openForWrite(parentFile)) {
+      while (read < size) {
+        int count = (int) Math.min(size - read, IO_BUFFER_BYTES / SLOT);
+        readFully(in, ByteBuffer.wrap(children, 0, count * SLOT), read * SLOT);
+        int written = 0;
+        for (int i = 0; i < count; i += 2) {
+          // Last node of an odd level is paired with itself
+          int right = i + 1 < count ? i + 1 : i;
+          hashMode.combine(children, i * SLOT, right * SLOT, parents, written);
+          written += SLOT;
+        }
+        writeFully(out, parents, written);
+        read += count;
+      }
+      out.force(false);
+    }
+    return (size + 1) / 2;
+  }
+
+  private static void writeMeta(Path directory, HashMode hashMode, long leafCount, int levelCount, Hash256 root)
+      throws IOException {
+    ByteBuffer meta = ByteBuffer.allocate(META_BYTES);
+    meta.putInt(MAGIC);
+    meta.put((byte) hashMode.ordinal());
+    meta.putLong(leafCount);
+    meta.putInt(levelCount);
+    meta.put(root.toBytes());
+    try (FileChannel out = openForWrite(directory.resolve(META_FILE))) {
+      meta.flip();
+      while (meta.hasRemaining()) {
+        out.write(meta);
+      }
+      out.force(true);
+    }
+  }
+
+  private static FileChannel openForWrite(Path file) throws IOException {
+    return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  private static void writeFully(FileChannel out, byte[] bytes, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    }
+  }
+
+  private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int n = in.read(buffer, position);
+      if (n < 0) {
+        throw new IOException("Merkle level file is shorter than its meta data says");
+      }
+      position += n;
+    }
+  }
+
+  private static Path levelFile(Path directory, int level) {
+    return directory.resolve(String.format("level-%02d.bin", level));
+  }
+
+  /**
+   * One level file mapped read-only in fixed windows
+   */
+  private static final class MappedLevel {
+    private final long size;
+    private MappedByteBuffer[] windows;
+
+    MappedLevel(Path file, long size) throws IOException {
+      this.size = size;
+      long bytes = size * SLOT;
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        if (channel.size() < bytes) {
+          throw new IOException("Merkle level file " + file + " holds " + channel.size() + " bytes, expected " + bytes);
+        }
+        // Mappings stay valid after the channel is closed
+        windows = new MappedByteBuffer[(int) ((bytes + WINDOW_BYTES - 1) / WINDOW_BYTES)];
+        for (int i = 0; i < windows.length; i++) {
+          long start = i * WINDOW_BYTES;
+          windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, bytes - start));
+        }
+      }
+    }
+
+    void read(long index, byte[] slot) {
+      if (windows == null) {
+        throw new IllegalStateException("Merkle store is closed");
+      }
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Slot " + index + " out of range for " + size);
+      }
+      long offset = index * SLOT;
+      // Reading through a duplicate leaves the shared buffer position alone, so reads can run concurrently
+      windows[(int) (offset / WINDOW_BYTES)].duplicate().position((int) (offset % WINDOW_BYTES)).get(slot, 0, SLOT);
+    }
+  }
+}
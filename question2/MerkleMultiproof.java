@@ -0,0 +1,120 @@
+package question2;
+
+import java.util.Arrays;
+import java.util.List;
+
+import question2.MerkleTree.HashMode;
+import utils.Hash256;
+
+/**
+ * One proof for several leaves of the same tree
+ *
+ * The layout is described by the leaf count and the sorted leaf indices
+ * alone: walking up level by level, a node needs a sibling hash only when
+ * that sibling is neither another proven node nor the node itself (the
+ * duplicated last node of an odd level). Siblings are stored in that walk
+ * order, level by level and left to right, so upper siblings shared by
+ * several leaves appear once and every parent is hashed once.
+ */
+public class MerkleMultiproof {
+
+  private final int leafCount;
+  private final int[] indices;
+  private final List<Hash256> siblings;
+  private final HashMode hashMode;
+
+  /**
+   * @param indices sorted, distinct leaf indices
+   */
+  public MerkleMultiproof(int leafCount, int[] indices, List<Hash256> siblings, HashMode hashMode) {
+    if (indices.length == 0) {
+      throw new IllegalArgumentException("A multiproof needs at least one leaf");
+    }
+    for (int i = 0; i < indices.length; i++) {
+      if (indices[i] < 0 || indices[i] >= leafCount || (i > 0 && indices[i] <= indices[i - 1])) {
+        throw new IllegalArgumentException("Leaf indices must be sorted, distinct and below " + leafCount);
+      }
+    }
+    this.leafCount = leafCount;
+    this.indices = indices.clone();
+    this.siblings = List.copyOf(siblings);
+    this.hashMode = hashMode;
+  }
+
+  public int getLeafCount() {
+    return leafCount;
+  }
+
+  /**
+   * Proven leaf indices in ascending order
+   */
+  public int[] getIndices() {
+    return indices.clone();
+  }
+
+  public List<Hash256> getSiblings() {
+    return siblings;
+  }
+
+  public HashMode getHashMode() {
+    return hashMode;
+  }
+
+  /**
+   * Encoded size: leaf count, index count, 4 bytes per index and 32 per sibling
+   */
+  public int byteSize() {
+    return 8 + 4 * indices.length + Hash256.BYTES * siblings.size();
+  }
+
+  /**
+   * Rebuilds the root from the leaf hashes, given in index order
+   * @return the root, or null when the hashes or siblings do not fit the layout
+   */
+  public Hash256 computeRoot(List<Hash256> leafHashes) {
+    if (leafHashes.size() != indices.length) {
+      return null;
+    }
+    int count = indices.length;
+    int[] level = indices.clone();
+    Hash256[] hashes = leafHashes.toArray(new Hash256[0]);
+    int size = leafCount;
+    int nextSibling = 0;
+
+    while (size > 1) {
+      int parents = 0;
+      for (int i = 0; i < count; i++) {
+        int index = level[i];
+        Hash256 parent;
+        if ((index & 1) == 1) {
+          if (nextSibling == siblings.size()) {
+            return null;
+          }
+          parent = hashMode.combine(siblings.get(nextSibling++), hashes[i]);
+        } else if (index + 1 == size) {
+          parent = hashMode.combine(hashes[i], hashes[i]);
+        } else if (i + 1 < count && level[i + 1] == index + 1) {
+          parent = hashMode.combine(hashes[i], hashes[i + 1]);
+          i++;
+        } else {
+          if (nextSibling == siblings.size()) {
+            return null;
+          }
+          parent = hashMode.combine(hashes[i], siblings.get(nextSibling++));
+        }
+        level[parents] = index >>> 1;
+        hashes[parents] = parent;
+        parents++;
+      }
+      count = parents;
+      size = (size + 1) / 2;
+    }
+    return nextSibling == siblings.size() ? hashes[0] : null;
+  }
+
+  @Override
+  public String toString() {
+    return "MerkleMultiproof{leaves=" + leafCount + ", indices=" + Arrays.toString(indices)
+        + ", siblings=" + siblings.size() + "}";
+  }
+}
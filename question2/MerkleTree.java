@@ -0,0 +1,426 @@
+package question2;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import question2.Q2_ii.ProofNode;
+import utils.Hash256;
+import utils.ShaHash;
+
+/**
+ * Merkle tree built once and kept in memory
+ *
+ * All levels are hashed up front with the same rules as Q2_i (hex
+ * concatenation of the children, last node duplicated on odd levels), so
+ * root() is a lookup and every proof only walks one node per level.
+ * A leaf-to-index map, built on the first lookup by item, finds items
+ * without scanning the data list.
+ *
+ * Nodes live in one byte[] of 32-byte slots, level after level from the
+ * leaves up to the root, about 64 bytes per leaf in total. Inside a level the
+ * parent of node i is i / 2, its children are 2i and 2i + 1 and its sibling
+ * is i ^ 1, falling back to the node itself for the last node of an odd level.
+ * Parents are hashed straight from the child slots into their own slot
+ * without creating per-node objects.
+ *
+ * Levels with at least parallelThreshold nodes are split into chunks on a
+ * ForkJoinPool. Every node is still computed from the same two children, so
+ * the parallel and sequential builds give bit-identical roots.
+ */
+public class MerkleTree {
+
+  /**
+   * How two children are combined into their parent
+   */
+  public enum HashMode {
+    HEX_CONCAT, // SHA-256 of the two lowercase hex strings, the Q2_i rule and the default
+    // SHA-256 of the two 32-byte digests, half the input and no hex encoding. Proofs
+    // must be checked with the HashMode overloads of Q2_iii and ProofCodec.
+    RAW;
+
+    public Hash256 combine(Hash256 left, Hash256 right) {
+      if (this == HEX_CONCAT) {
+        return ShaHash.hashHexPair(left, right);
+      }
+      byte[] pair = new byte[Hash256.BYTES * 2];
+      left.writeTo(pair, 0);
+      right.writeTo(pair, Hash256.BYTES);
+      return ShaHash.hash256(pair, 0, pair.length);
+    }
+
+    /**
+     * Combines two child slots of the same array into out[outOffset ..]
+     */
+    void combine(byte[] children, int leftOffset, int rightOffset, byte[] out, int outOffset) {
+      if (this == HEX_CONCAT) {
+        ShaHash.hashHexPair(children, leftOffset, rightOffset, out, outOffset);
+      } else if (rightOffset == leftOffset + SLOT) {
+        // Siblings sit next to each other, so the pair is already one 64-byte input
+        ShaHash.sha256(children, leftOffset, 2 * SLOT, out, outOffset);
+      } else {
+        byte[] pair = new byte[2 * SLOT];
+        System.arraycopy(children, leftOffset, pair, 0, SLOT);
+        System.arraycopy(children, rightOffset, pair, SLOT, SLOT);
+        ShaHash.sha256(pair, out, outOffset);
+      }
+    }
+  }
+
+  /**
+   * Smallest level worth splitting across threads, below it fork/join overhead dominates
+   */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 13;
+
+  // Chunks never get smaller than this many nodes
+  private static final int MIN_CHUNK = 1 << 10;
+
+  private static final int SLOT = Hash256.BYTES;
+
+  private final List<String> items;
+  private final HashMode hashMode;
+  private final byte[] nodes;
+  private final int[] levelStart; // first slot of each level
+  private final int[] levelSize;
+  private volatile Map<String, Integer> leafIndex;
+
+  /**
+   * Hashes every data item and builds all levels up to the root on the calling thread
+   * @param dataItems List of strings representing transaction IDs or data
+   */
+  public MerkleTree(List<String> dataItems) {
+    this(dataItems, HashMode.HEX_CONCAT, null, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Builds in parallel on the common pool once a level has parallelThreshold nodes
+   */
+  public MerkleTree(List<String> dataItems, int parallelThreshold) {
+    this(dataItems, HashMode.HEX_CONCAT, ForkJoinPool.commonPool(), parallelThreshold);
+  }
+
+  public MerkleTree(List<String> dataItems, ForkJoinPool pool, int parallelThreshold) {
+    this(dataItems, HashMode.HEX_CONCAT, pool, parallelThreshold);
+  }
+
+  /**
+   * @param hashMode rule for combining two children
+   * @param pool pool for the parallel levels, null to build sequentially
+   * @param parallelThreshold levels with fewer nodes are hashed on the calling thread
+   */
+  public MerkleTree(List<String> dataItems, HashMode hashMode, ForkJoinPool pool, int parallelThreshold) {
+    if (dataItems == null || dataItems.isEmpty()) {
+      throw new IllegalArgumentException("Data items cannot be null or empty");
+    }
+    if (parallelThreshold < 1) {
+      throw new IllegalArgumentException("Parallel threshold must be positive: " + parallelThreshold);
+    }
+    this.items = List.copyOf(dataItems);
+    this.hashMode = Objects.requireNonNull(hashMode, "hashMode");
+
+    int levels = 1;
+    for (int size = items.size(); size > 1; size = (size + 1) / 2) {
+      levels++;
+    }
+    levelStart = new int[levels];
+    levelSize = new int[levels];
+    long slots = 0;
+    for (int level = 0, size = items.size(); level < levels; level++, size = (size + 1) / 2) {
+      levelStart[level] = (int) Math.min(slots, Integer.MAX_VALUE);
+      levelSize[level] = size;
+      slots += size;
+    }
+    if (slots > (Integer.MAX_VALUE - 8) / SLOT) {
+      throw new IllegalArgumentException("Too many leaves for one node array: " + items.size());
+    }
+    nodes = new byte[(int) slots * SLOT];
+
+    forRange(items.size(), pool, parallelThreshold, MIN_CHUNK,
+        (from, to) -> ShaHash.sha256All(items.subList(from, to), nodes, from * SLOT));
+    for (int level = 1; level < levels; level++) {
+      buildLevel(level, pool, parallelThreshold);
+    }
+  }
+
+  public Hash256 root() {
+    return node(levelCount() - 1, 0);
+  }
+
+  public HashMode hashMode() {
+    return hashMode;
+  }
+
+  /**
+   * Number of leaves
+   */
+  public int size() {
+    return items.size();
+  }
+
+  public List<String> items() {
+    return items;
+  }
+
+  /**
+   * Number of levels including the leaves and the root
+   */
+  public int levelCount() {
+    return levelSize.length;
+  }
+
+  public int levelSize(int level) {
+    return levelSize[level];
+  }
+
+  /**
+   * Hash of node index on level, 0 being the leaves
+   */
+  public Hash256 node(int level, int index) {
+    return Hash256.fromBytes(nodes, offset(level, index));
+  }
+
+  /**
+   * Bytes used by the node slots
+   */
+  public long bytesAllocated() {
+    return nodes.length;
+  }
+
+  public static int parent(int index) {
+    return index >>> 1;
+  }
+
+  public static int leftChild(int index) {
+    return index << 1;
+  }
+
+  /**
+   * Right child of index in the level below, the left child itself when it is the last of an odd level
+   */
+  public int rightChild(int level, int index) {
+    return sibling(level - 1, leftChild(index));
+  }
+
+  /**
+   * Sibling of index on level, the node itself when it is the last of an odd level
+   */
+  public int sibling(int level, int index) {
+    int sibling = index ^ 1;
+    return sibling < levelSize[level] ? sibling : index;
+  }
+
+  /**
+   * Views of every level, leaves first and the root last. Hashes are read
+   * from the node array on access.
+   */
+  public List<List<Hash256>> levels() {
+    List<List<Hash256>> views = new ArrayList<>(levelCount());
+    for (int level = 0; level < levelCount(); level++) {
+      final int viewLevel = level;
+      views.add(new AbstractList<Hash256>() {
+        @Override
+        public Hash256 get(int index) {
+          Objects.checkIndex(index, levelSize[viewLevel]);
+          return node(viewLevel, index);
+        }
+
+        @Override
+        public int size() {
+          return levelSize[viewLevel];
+        }
+      });
+    }
+    return Collections.unmodifiableList(views);
+  }
+
+  /**
+   * Index of the first leaf holding item, or -1
+   */
+  public int indexOf(String item) {
+    Map<String, Integer> index = leafIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = leafIndex;
+        if (index == null) {
+          // First occurrence wins, like List.indexOf
+          index = new HashMap<>(items.size() * 2);
+          for (int i = 0; i < items.size(); i++) {
+            index.putIfAbsent(items.get(i), i);
+          }
+          leafIndex = index;
+        }
+      }
+    }
+    Integer found = index.get(item);
+    return found == null ? -1 : found;
+  }
+
+  /**
+   * Sibling hashes from the leaf at index up to the root
+   */
+  public List<ProofNode> proof(int index) {
+    if (index < 0 || index >= items.size()) {
+      throw new IndexOutOfBoundsException("Leaf index " + index + " out of range for " + items.size() + " leaves");
+    }
+    List<ProofNode> proof = new ArrayList<>(levelCount() - 1);
+    for (int level = 0; level < levelCount() - 1; level++) {
+      // Odd index means the sibling is on the left
+      proof.add(new ProofNode(node(level, sibling(level, index)), (index & 1) == 1));
+      index = parent(index);
+    }
+    return proof;
+  }
+
+  /**
+   * Proof for the first leaf holding item
+   */
+  public List<ProofNode> proof(String item) {
+    int index = indexOf(item);
+    if (index == -1) {
+      throw new IllegalArgumentException("Target item '" + item + "' not found in data items");
+    }
+    return proof(index);
+  }
+
+  /**
+   * One deduplicated proof for several leaves, duplicates in indices are ignored
+   */
+  public MerkleMultiproof multiproof(int... indices) {
+    int[] sorted = Arrays.stream(indices).sorted().distinct().toArray();
+    for (int index : sorted) {
+      if (index < 0 || index >= items.size()) {
+        throw new IndexOutOfBoundsException("Leaf index " + index + " out of range for " + items.size() + " leaves");
+      }
+    }
+
+    // Same walk as MerkleMultiproof.computeRoot, collecting the siblings it will consume
+    List<Hash256> siblings = new ArrayList<>();
+    int[] known = sorted.clone();
+    int count = known.length;
+    for (int level = 0; level < levelCount() - 1; level++) {
+      int parents = 0;
+      for (int i = 0; i < count; i++) {
+        int index = known[i];
+        int sibling = sibling(level, index);
+        if (sibling != index) {
+          if (i + 1 < count && known[i + 1] == sibling) {
+            i++;
+          } else {
+            siblings.add(node(level, sibling));
+          }
+        }
+        known[parents++] = parent(index);
+      }
+      count = parents;
+    }
+    return new MerkleMultiproof(items.size(), sorted, siblings, hashMode);
+  }
+
+  /**
+   * Multiproof for the first leaf holding each item
+   */
+  public MerkleMultiproof multiproof(Collection<String> targetItems) {
+    int[] indices = new int[targetItems.size()];
+    int i = 0;
+    for (String item : targetItems) {
+      indices[i] = indexOf(item);
+      if (indices[i] == -1) {
+        throw new IllegalArgumentException("Target item '" + item + "' not found in data items");
+      }
+      i++;
+    }
+    return multiproof(indices);
+  }
+
+  /**
+   * Pairs up a level, duplicating the last node when the count is odd
+   */
+  static List<Hash256> buildNextLevel(List<Hash256> currentLevel) {
+    List<Hash256> nextLevel = new ArrayList<>((currentLevel.size() + 1) / 2);
+    for (int i = 0; i < currentLevel.size(); i += 2) {
+      Hash256 leftChild = currentLevel.get(i);
+      Hash256 rightChild = (i + 1 < currentLevel.size()) ? currentLevel.get(i + 1) : leftChild;
+      nextLevel.add(HashMode.HEX_CONCAT.combine(leftChild, rightChild));
+    }
+    return nextLevel;
+  }
+
+  /**
+   * Hashes every parent of level from the child slots of the level below
+   */
+  private void buildLevel(int level, ForkJoinPool pool, int parallelThreshold) {
+    forRange(levelSize[level], pool, parallelThreshold, MIN_CHUNK, (from, to) -> {
+      for (int parent = from; parent < to; parent++) {
+        int left = leftChild(parent);
+        hashMode.combine(nodes, offset(level - 1, left), offset(level - 1, rightChild(level, parent)),
+            nodes, offset(level, parent));
+      }
+    });
+  }
+
+  /**
+   * Copies the slots of one level into out[outOffset ..]
+   */
+  void copyLevel(int level, byte[] out, int outOffset) {
+    System.arraycopy(nodes, offset(level, 0), out, outOffset, levelSize[level] * SLOT);
+  }
+
+  private int offset(int level, int index) {
+    return (levelStart[level] + index) * SLOT;
+  }
+
+  /**
+   * Work on the index range [from, to), each index is handled by exactly one chunk
+   */
+  interface RangeBody {
+    void run(int from, int to);
+  }
+
+  /**
+   * Runs body over [0, count) on the calling thread, or in chunks of at least
+   * minChunk on the pool when count reaches parallelThreshold
+   */
+  static void forRange(int count, ForkJoinPool pool, int parallelThreshold, int minChunk, RangeBody body) {
+    if (pool == null || count < parallelThreshold || pool.getParallelism() < 2) {
+      body.run(0, count);
+      return;
+    }
+    // A few chunks per thread so uneven chunks still balance
+    int chunk = Math.max(minChunk, count / (pool.getParallelism() * 4));
+    pool.invoke(new RangeTask(body, 0, count, chunk));
+  }
+
+  private static class RangeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final RangeBody body;
+    private final int from;
+    private final int to;
+    private final int chunk;
+
+    RangeTask(RangeBody body, int from, int to, int chunk) {
+      this.body = body;
+      this.from = from;
+      this.to = to;
+      this.chunk = chunk;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= chunk) {
+        body.run(from, to);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new RangeTask(body, from, middle, chunk), new RangeTask(body, middle, to, chunk));
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package question2;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import question2.MerkleTree.HashMode;
+import question2.Q2_ii.ProofNode;
+import utils.Hash256;
+
+/**
+ * Binary wire format for single-leaf Merkle proofs
+ *
+ * Layout, big-endian: leaf index (4 bytes), depth (1 byte), direction bitmap
+ * (ceil(depth / 8) bytes, bit i set when the sibling of step i is on the
+ * left, least significant bit first), then depth raw 32-byte siblings from the
+ * leaf up. A 20-level proof takes 648 bytes. The verifier reads siblings
+ * straight out of the buffer into per-thread scratch space, no ProofNode or
+ * Hash256 objects are created.
+ */
+public class ProofCodec {
+
+  private static final int HEADER_BYTES = 5;
+  private static final int MAX_DEPTH = 32;
+
+  // Current hash and sibling laid out as one left/right pair for HashMode.combine
+  private static final ThreadLocal<byte[]> PAIR = ThreadLocal.withInitial(() -> new byte[2 * Hash256.BYTES]);
+
+  /**
+   * Encoded size of a proof with the given number of steps
+   */
+  public static int encodedLength(int depth) {
+    return HEADER_BYTES + bitmapBytes(depth) + depth * Hash256.BYTES;
+  }
+
+  public static byte[] encode(int leafIndex, List<ProofNode> proof) {
+    ByteBuffer out = ByteBuffer.allocate(encodedLength(proof.size()));
+    encode(leafIndex, proof, out);
+    return out.array();
+  }
+
+  /**
+   * Writes the proof at the buffer position and advances it
+   */
+  public static void encode(int leafIndex, List<ProofNode> proof, ByteBuffer out) {
+    int depth = proof.size();
+    if (leafIndex < 0 || depth > MAX_DEPTH) {
+      throw new IllegalArgumentException("Cannot encode proof of depth " + depth + " for leaf " + leafIndex);
+    }
+    out.putInt(leafIndex);
+    out.put((byte) depth);
+    byte[] bitmap = new byte[bitmapBytes(depth)];
+    for (int step = 0; step < depth; step++) {
+      if (proof.get(step).isLeft()) {
+        bitmap[step >>> 3] |= (byte) (1 << (step & 7));
+      }
+    }
+    out.put(bitmap);
+    byte[] sibling = new byte[Hash256.BYTES];
+    for (ProofNode node : proof) {
+      node.getHash().writeTo(sibling, 0);
+      out.put(sibling);
+    }
+  }
+
+  /**
+   * Leaf index of an encoded proof starting at the buffer position
+   */
+  public static int leafIndex(ByteBuffer proof) {
+    return proof.getInt(proof.position());
+  }
+
+  /**
+   * Materializes an encoded proof as ProofNode objects, reading from the buffer position
+   */
+  public static List<ProofNode> decode(ByteBuffer proof) {
+    int start = proof.position();
+    int depth = depth(proof, start);
+    int bitmapStart = start + HEADER_BYTES;
+    int siblingStart = bitmapStart + bitmapBytes(depth);
+    List<ProofNode> nodes = new ArrayList<>(depth);
+    byte[] sibling = new byte[Hash256.BYTES];
+    // Relative reads on a view, the caller's position stays put
+    ByteBuffer siblings = proof.duplicate();
+    for (int step = 0; step < depth; step++) {
+      siblings.position(siblingStart + step * Hash256.BYTES).get(sibling);
+      nodes.add(new ProofNode(Hash256.fromBytes(sibling), isLeft(proof, bitmapStart, step)));
+    }
+    return nodes;
+  }
+
+  /**
+   * Recomputes the root from a leaf hash and an encoded proof at the buffer
+   * position, hex-concatenation node rule. The buffer position is not moved.
+   * Rejects proofs whose direction bitmap disagrees with the leaf index.
+   */
+  public static boolean verify(ByteBuffer proof, Hash256 leafHash, Hash256 expectedRoot) {
+    return verify(proof, leafHash, expectedRoot, HashMode.HEX_CONCAT);
+  }
+
+  /**
+   * Same as verify, for a tree built with the given node rule
+   */
+  public static boolean verify(ByteBuffer proof, Hash256 leafHash, Hash256 expectedRoot, HashMode hashMode) {
+    int start = proof.position();
+    if (proof.remaining() < HEADER_BYTES) {
+      return false;
+    }
+    int leafIndex = proof.getInt(start);
+    int depth = proof.get(start + 4) & 0xff;
+    if (leafIndex < 0 || depth > MAX_DEPTH || proof.remaining() < encodedLength(depth)) {
+      return false;
+    }
+    int bitmapStart = start + HEADER_BYTES;
+    int siblingStart = bitmapStart + bitmapBytes(depth);
+
+    byte[] pair = PAIR.get();
+    ByteBuffer siblings = proof.duplicate(); // relative reads, the caller's position stays put
+    leafHash.writeTo(pair, 0);
+    int current = 0; // offset of the running hash inside pair
+    for (int step = 0; step < depth; step++) {
+      boolean left = isLeft(proof, bitmapStart, step);
+      // In this tree shape an odd index always has its sibling on the left
+      if (left != (((leafIndex >>> step) & 1) == 1)) {
+        return false;
+      }
+      // Put the sibling in the other half so the pair is already in left/right order
+      int siblingOffset = left ? 0 : Hash256.BYTES;
+      if (current == siblingOffset) {
+        System.arraycopy(pair, current, pair, Hash256.BYTES - current, Hash256.BYTES);
+        current = Hash256.BYTES - current;
+      }
+      siblings.position(siblingStart + step * Hash256.BYTES).get(pair, siblingOffset, Hash256.BYTES);
+      hashMode.combine(pair, 0, Hash256.BYTES, pair, current);
+    }
+    if ((leafIndex >>> depth) != 0 && depth < MAX_DEPTH) {
+      return false; // index points past the tree the proof describes
+    }
+    return Hash256.fromBytes(pair, current).equals(expectedRoot);
+  }
+
+  private static int depth(ByteBuffer proof, int start) {
+    if (proof.limit() - start < HEADER_BYTES) {
+      throw new BufferUnderflowException();
+    }
+    int depth = proof.get(start + 4) & 0xff;
+    if (proof.limit() - start < encodedLength(depth)) {
+      throw new BufferUnderflowException();
+    }
+    return depth;
+  }
+
+  private static boolean isLeft(ByteBuffer proof, int bitmapStart, int step) {
+    return (proof.get(bitmapStart + (step >>> 3)) & (1 << (step & 7))) != 0;
+  }
+
+  private static int bitmapBytes(int depth) {
+    return (depth + 7) >>> 3;
+  }
+}
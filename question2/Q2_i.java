@@ -1,7 +1,7 @@
 package question2;
 import java.util.List;
+import utils.Hash256;
 import utils.ShaHash;
-import java.util.ArrayList;
 
 public class Q2_i {
 
@@ -24,55 +24,31 @@ public class Q2_i {
         throw new IllegalArgumentException("Data items cannot be null or empty");
       }
       
-      // Create initial leaf nodes by hashing each data item
-      List<String> currentLevel = new ArrayList<>();
-      for (String data : dataItems) {
-        currentLevel.add(ShaHash.sha256Hash(data));
-      }
-      
-      // Build tree level by level until we reach the root
-      List<List<String>> allLevels = new ArrayList<>();
-      allLevels.add(new ArrayList<>(currentLevel));
-      
-      while (currentLevel.size() > 1) {
-        currentLevel = buildNextLevel(currentLevel);
-        allLevels.add(new ArrayList<>(currentLevel));
-      }
-     
-      printTreeStructure(dataItems, allLevels);
+      // Small inputs stay on this thread, large ones hash their wide levels on the common pool
+      MerkleTree tree = new MerkleTree(dataItems, MerkleTree.DEFAULT_PARALLEL_THRESHOLD);
+
+      printTreeStructure(dataItems, tree.levels());
   
-      return currentLevel.get(0); // Merkle root
+      return tree.root().toHex(); // Merkle root
     }
 
   /**
    * Builds the next level of the Merkle Tree from the current level
    * Handles odd number of nodes by duplicating the last node
    */
-  public static List<String> buildNextLevel(List<String> currentLevel) {
-    List<String> nextLevel = new ArrayList<>();
-
-    for (int i = 0; i < currentLevel.size(); i += 2) {
-      String leftChild = currentLevel.get(i);
-      
-      String rightChild = (i + 1 < currentLevel.size()) ? currentLevel.get(i + 1) : leftChild; // Handle odd nodes
-
-      // Combine and hash the two children
-      String combinedHash = ShaHash.sha256Hash(leftChild + rightChild);
-      nextLevel.add(combinedHash);
-    }
-
-    return nextLevel;
+  public static List<Hash256> buildNextLevel(List<Hash256> currentLevel) {
+    return MerkleTree.buildNextLevel(currentLevel);
   }
 
   /**
    * Prints the Merkle Tree in a folder-like tree structure
    */
-  public static void printTreeStructure(List<String> originalData, List<List<String>> allLevels) {
+  public static void printTreeStructure(List<String> originalData, List<List<Hash256>> allLevels) {
     System.out.println("\n=== Merkle Tree ===");
     
     // Start from root level
     int rootLevel = allLevels.size() - 1;
-    String rootHash = allLevels.get(rootLevel).get(0);
+    String rootHash = allLevels.get(rootLevel).get(0).toHex();
     
     System.out.println("\nMerkle Root: " + rootHash + "\n");
     // Recursively print the tree structure
@@ -86,12 +62,12 @@ public class Q2_i {
   /**
    * Helper method to recursively print nodes in folder tree format
    */
-  private static void printNode(List<List<String>> allLevels, List<String> originalData,
+  private static void printNode(List<List<Hash256>> allLevels, List<String> originalData,
       int level, int nodeIndex, String prefix) {
     if (level <= 0)
       return;
 
-    List<String> childLevel = allLevels.get(level - 1);
+    List<Hash256> childLevel = allLevels.get(level - 1);
     int leftIndex = nodeIndex * 2;
     int rightIndex = nodeIndex * 2 + 1;
     boolean hasRight = rightIndex < childLevel.size();
@@ -1,8 +1,8 @@
 package question2;
 
-import java.util.ArrayList;
 import java.util.List;
 
+import utils.Hash256;
 import utils.ShaHash;
 
 public class Q2_ii {
@@ -14,61 +14,19 @@ public class Q2_ii {
    * @return List of ProofNode objects representing the proof path
    */
   public static List<ProofNode> generateMerkleProof(List<String> dataItems, String targetItem) {
-    if (dataItems == null || dataItems.isEmpty()) {
-      throw new IllegalArgumentException("Data items cannot be null or empty");
-    }
-
-    // Find the index of the target item
-    int targetIndex = dataItems.indexOf(targetItem);
-    if (targetIndex == -1) {
-      throw new IllegalArgumentException("Target item '" + targetItem + "' not found in data items");
-    }
-
-    List<ProofNode> proof = new ArrayList<>();
-
-    // Create initial leaf nodes by hashing each data item
-    List<String> currentLevel = new ArrayList<>();
-    for (String data : dataItems) {
-      currentLevel.add(ShaHash.sha256Hash(data));
-    }
-
-    int currentIndex = targetIndex;
-
-    // Build proof path by moving up the tree
-    while (currentLevel.size() > 1) {
-      List<String> nextLevel = new ArrayList<>();
-
-      for (int i = 0; i < currentLevel.size(); i += 2) {
-        String leftHash = currentLevel.get(i);
-        String rightHash;
-
-        // Handle odd number of nodes (duplicate the last node)
-        if (i + 1 < currentLevel.size()) {
-          rightHash = currentLevel.get(i + 1);
-        } else {
-          rightHash = leftHash; // Duplicate for odd number
-        }
-
-        // If current index is at this pair, collect sibling for proof
-        if (i == (currentIndex / 2) * 2) {
-          if (currentIndex % 2 == 0) {
-            // Current node is left child, sibling is right
-            proof.add(new ProofNode(rightHash, false)); // Right sibling is duplicate
-          } else {
-            // Current node is right child, sibling is left
-            proof.add(new ProofNode(leftHash, true)); // Left sibling
-          }
-        }
-
-        // Combine hashes for next level
-        nextLevel.add(ShaHash.sha256Hash(leftHash + rightHash));
-      }
-
-      currentLevel = nextLevel;
-      currentIndex = currentIndex / 2;
-    }
+    return new MerkleTree(dataItems).proof(targetItem);
+  }
 
-    return proof;
+  /**
+   * Generates one Merkle proof covering several data items, upper siblings
+   * they share are included once
+   *
+   * @param dataItems   Original list of data items
+   * @param targetItems Items to prove, verified in ascending leaf order
+   * @return Multiproof with the leaf indices and deduplicated sibling hashes
+   */
+  public static MerkleMultiproof generateMerkleMultiproof(List<String> dataItems, List<String> targetItems) {
+    return new MerkleTree(dataItems).multiproof(targetItems);
   }
 
   /**
@@ -109,11 +67,13 @@ public class Q2_ii {
   public static void testMerkleProof(List<String> dataItems, String targetItem) {
     System.out.println("\n\n\nTesting Merkle Proof for item: " + targetItem);
 
-    // Build the Merkle tree to get the root
-    String merkleRoot = Q2_i.buildMerkleTree(dataItems);
+    // Build the Merkle tree once for both the root and the proof
+    MerkleTree tree = new MerkleTree(dataItems);
+    Q2_i.printTreeStructure(dataItems, tree.levels());
+    String merkleRoot = tree.root().toHex();
 
     // Generate the proof for the target item
-    List<ProofNode> proof = generateMerkleProof(dataItems, targetItem);
+    List<ProofNode> proof = tree.proof(targetItem);
 
     // Display the proof
     displayMerkleProof(targetItem, proof);
@@ -128,16 +88,16 @@ public class Q2_ii {
   /**
    * Class representing a single node in the Merkle proof path
    */
-  static class ProofNode {
-    private final String hash;
+  public static class ProofNode {
+    private final Hash256 hash;
     private final boolean isLeft;
 
-    public ProofNode(String hash, boolean isLeft) {
+    public ProofNode(Hash256 hash, boolean isLeft) {
       this.hash = hash;
       this.isLeft = isLeft;
     }
 
-    public String getHash() {
+    public Hash256 getHash() {
       return hash;
     }
 
@@ -1,8 +1,15 @@
 package question2;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
+import question2.MerkleTree.HashMode;
 import question2.Q2_ii.ProofNode;
+import utils.Hash256;
 import utils.ShaHash;
 
 public class Q2_iii {
@@ -15,22 +22,176 @@ public class Q2_iii {
    * @return true if proof is valid, false otherwise
    */
   public static boolean verifyMerkleProof(String targetItem, List<ProofNode> proof, String expectedRoot) {
-    String currentHash = ShaHash.sha256Hash(targetItem);
+    return verifyMerkleProof(targetItem, proof, expectedRoot, true);
+  }
+
+  /**
+   * Same as verifyMerkleProof, printing the roots only when verbose is set
+   */
+  public static boolean verifyMerkleProof(String targetItem, List<ProofNode> proof, String expectedRoot,
+      boolean verbose) {
+    return verifyMerkleProof(targetItem, proof, expectedRoot, HashMode.HEX_CONCAT, verbose);
+  }
+
+  /**
+   * Same as verifyMerkleProof, for a tree built with the given node rule
+   */
+  public static boolean verifyMerkleProof(String targetItem, List<ProofNode> proof, String expectedRoot,
+      HashMode hashMode, boolean verbose) {
+    Hash256 currentHash = ShaHash.hash256(targetItem);
 
     // Walk up the tree using the proof
     for (ProofNode proofNode : proof) {
       if (proofNode.isLeft()) {
         // Sibling is on the left, current hash goes on the right
-        currentHash = ShaHash.sha256Hash(proofNode.getHash() + currentHash);
+        currentHash = hashMode.combine(proofNode.getHash(), currentHash);
       } else {
         // Sibling is on the right, current hash goes on the left
-        currentHash = ShaHash.sha256Hash(currentHash + proofNode.getHash());
+        currentHash = hashMode.combine(currentHash, proofNode.getHash());
       }
     }
 
-    System.out.println("=== Verifying Merkle Proof ===\n");
-    System.out.println("Expected Merkle Root: " + expectedRoot);
-    System.out.println("Calculated Merkle Root: " + currentHash);
-    return currentHash.equals(expectedRoot);
+    if (verbose) {
+      System.out.println("=== Verifying Merkle Proof ===\n");
+      System.out.println("Expected Merkle Root: " + expectedRoot);
+      System.out.println("Calculated Merkle Root: " + currentHash.toHex());
+    }
+    return currentHash.equals(parseRoot(expectedRoot));
+  }
+
+  /**
+   * Verifies many (item, proof, root) claims in parallel without printing,
+   * see BatchProofVerifier for the parent cache
+   *
+   * @param claims Claims to check
+   * @return Bit i set when claim i is valid
+   */
+  public static BitSet verifyMerkleProofs(List<BatchProofVerifier.Claim> claims) {
+    return new BatchProofVerifier().verifyAll(claims);
+  }
+
+  /**
+   * Verifies a proof in the ProofCodec binary format straight from the buffer,
+   * without decoding it into ProofNode objects. Prints nothing, meant for
+   * verifying proofs received over the wire at high volume.
+   * 
+   * @param targetItem   The original data item
+   * @param proof        Encoded proof starting at the buffer position, which is left unchanged
+   * @param expectedRoot The expected Merkle root
+   * @return true if proof is valid, false otherwise
+   */
+  public static boolean verifyMerkleProof(String targetItem, ByteBuffer proof, String expectedRoot) {
+    return verifyMerkleProof(targetItem, proof, expectedRoot, HashMode.HEX_CONCAT);
+  }
+
+  /**
+   * Same as the ByteBuffer verifyMerkleProof, for a tree built with the given node rule
+   */
+  public static boolean verifyMerkleProof(String targetItem, ByteBuffer proof, String expectedRoot, HashMode hashMode) {
+    Hash256 root = parseRoot(expectedRoot);
+    return root != null && ProofCodec.verify(proof, ShaHash.hash256(targetItem), root, hashMode);
+  }
+
+  /**
+   * Verifies a multiproof against a known root, hashing each shared parent once.
+   * Repeated items are proven once, as MerkleTree.multiproof does.
+   * 
+   * @param targetItems  The proven data items in ascending leaf index order
+   * @param proof        Multiproof from MerkleTree.multiproof
+   * @param expectedRoot The expected Merkle root
+   * @return true if proof is valid, false otherwise
+   */
+  public static boolean verifyMerkleMultiproof(List<String> targetItems, MerkleMultiproof proof, String expectedRoot) {
+    return verifyMerkleMultiproof(targetItems, proof, expectedRoot, true);
+  }
+
+  /**
+   * Same as verifyMerkleMultiproof, printing the roots only when verbose is set
+   */
+  public static boolean verifyMerkleMultiproof(List<String> targetItems, MerkleMultiproof proof, String expectedRoot,
+      boolean verbose) {
+    List<String> distinct = new ArrayList<>(new LinkedHashSet<>(targetItems));
+    return checkMultiproofRoot(proof.computeRoot(ShaHash.hash256All(distinct)), expectedRoot, verbose);
+  }
+
+  /**
+   * Verifies a multiproof for items given by leaf index, in any order
+   * 
+   * @param itemsByIndex The proven data items keyed by leaf index, exactly the proof's indices
+   * @param proof        Multiproof from MerkleTree.multiproof
+   * @param expectedRoot The expected Merkle root
+   * @return true if proof is valid, false otherwise
+   */
+  public static boolean verifyMerkleMultiproof(Map<Integer, String> itemsByIndex, MerkleMultiproof proof,
+      String expectedRoot) {
+    return verifyMerkleMultiproof(itemsByIndex, proof, expectedRoot, true);
+  }
+
+  /**
+   * Same as the leaf index verifyMerkleMultiproof, printing the roots only when verbose is set
+   */
+  public static boolean verifyMerkleMultiproof(Map<Integer, String> itemsByIndex, MerkleMultiproof proof,
+      String expectedRoot, boolean verbose) {
+    int[] indices = proof.getIndices();
+    List<String> items = new ArrayList<>(indices.length);
+    for (int index : indices) {
+      String item = itemsByIndex.get(index);
+      if (item == null) {
+        break;
+      }
+      items.add(item);
+    }
+    Hash256 calculatedRoot = items.size() == itemsByIndex.size() && items.size() == indices.length
+        ? proof.computeRoot(ShaHash.hash256All(items))
+        : null;
+    return checkMultiproofRoot(calculatedRoot, expectedRoot, verbose);
+  }
+
+  private static boolean checkMultiproofRoot(Hash256 calculatedRoot, String expectedRoot, boolean verbose) {
+    if (verbose) {
+      System.out.println("=== Verifying Merkle Multiproof ===\n");
+      System.out.println("Expected Merkle Root: " + expectedRoot);
+      System.out.println("Calculated Merkle Root: " + (calculatedRoot == null ? "(proof does not fit)" : calculatedRoot.toHex()));
+    }
+    return calculatedRoot != null && calculatedRoot.equals(parseRoot(expectedRoot));
+  }
+
+  /**
+   * Verifies that a sparse Merkle tree maps key to value. Prints nothing.
+   *
+   * @param key          The key
+   * @param value        The value it should hold
+   * @param proof        Proof from SparseMerkleTree.proof(key)
+   * @param expectedRoot The expected sparse tree root
+   * @return true if proof is valid, false otherwise
+   */
+  public static boolean verifySparseMembership(String key, String value, SparseMerkleProof proof, String expectedRoot) {
+    Hash256 keyHash = SparseMerkleTree.keyHash(key);
+    Hash256 leafHash = SparseMerkleTree.leafHash(keyHash, ShaHash.hash256(value));
+    return proof.computeRoot(keyHash, leafHash).equals(parseRoot(expectedRoot));
+  }
+
+  /**
+   * Verifies that a sparse Merkle tree holds no value for key. Prints nothing.
+   *
+   * @param key          The key
+   * @param proof        Proof from SparseMerkleTree.proof(key)
+   * @param expectedRoot The expected sparse tree root
+   * @return true if proof is valid, false otherwise
+   */
+  public static boolean verifySparseNonMembership(String key, SparseMerkleProof proof, String expectedRoot) {
+    return proof.computeRoot(SparseMerkleTree.keyHash(key), Hash256.ZERO).equals(parseRoot(expectedRoot));
+  }
+
+  /**
+   * The expected root as a Hash256, or null when it is not 64 hex characters,
+   * which no calculated root equals
+   */
+  private static Hash256 parseRoot(String expectedRoot) {
+    try {
+      return Hash256.fromHex(expectedRoot);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
   }
 }
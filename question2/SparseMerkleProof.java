@@ -0,0 +1,85 @@
+package question2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import utils.Hash256;
+
+/**
+ * Path from one slot of a SparseMerkleTree to its root
+ *
+ * Most of the 256 siblings are empty-subtree defaults, so only the others are
+ * kept, lowest first, with a 256-bit mask marking the heights they belong to.
+ * The same proof shows membership when folded from the key's leaf hash and
+ * non-membership when folded from the empty leaf.
+ */
+public class SparseMerkleProof {
+
+  private final Hash256 mask;
+  private final List<Hash256> siblings;
+
+  /**
+   * @param siblingsByHeight 256 siblings indexed by height, null for an empty subtree
+   */
+  SparseMerkleProof(Hash256[] siblingsByHeight) {
+    List<Hash256> kept = new ArrayList<>();
+    Hash256 bits = Hash256.ZERO;
+    for (int height = 0; height < SparseMerkleTree.DEPTH; height++) {
+      if (siblingsByHeight[height] != null) {
+        bits = bits.flipBit(height);
+        kept.add(siblingsByHeight[height]);
+      }
+    }
+    this.mask = bits;
+    this.siblings = Collections.unmodifiableList(kept);
+  }
+
+  /**
+   * @param mask bit h set when the sibling at height h is not an empty subtree
+   * @param siblings those siblings, lowest height first
+   */
+  public SparseMerkleProof(Hash256 mask, List<Hash256> siblings) {
+    if (mask.bitCount() != siblings.size()) {
+      throw new IllegalArgumentException("Mask marks " + mask.bitCount() + " siblings, got " + siblings.size());
+    }
+    this.mask = mask;
+    this.siblings = List.copyOf(siblings);
+  }
+
+  public Hash256 getMask() {
+    return mask;
+  }
+
+  public List<Hash256> getSiblings() {
+    return siblings;
+  }
+
+  /**
+   * Encoded size: the 32-byte mask and 32 bytes per stored sibling
+   */
+  public int byteSize() {
+    return Hash256.BYTES * (1 + siblings.size());
+  }
+
+  /**
+   * Folds a leaf up the key's path
+   * @param leafHash the key's leaf hash, or Hash256.ZERO to check the slot is empty
+   */
+  public Hash256 computeRoot(Hash256 keyHash, Hash256 leafHash) {
+    Hash256 current = leafHash;
+    int next = 0;
+    for (int height = 0; height < SparseMerkleTree.DEPTH; height++) {
+      Hash256 sibling = mask.bit(height) ? siblings.get(next++) : SparseMerkleTree.defaultHash(height);
+      current = keyHash.bit(SparseMerkleTree.DEPTH - 1 - height)
+          ? SparseMerkleTree.parent(height, sibling, current)
+          : SparseMerkleTree.parent(height, current, sibling);
+    }
+    return current;
+  }
+
+  @Override
+  public String toString() {
+    return "SparseMerkleProof{siblings=" + siblings.size() + ", bytes=" + byteSize() + "}";
+  }
+}
@@ -0,0 +1,315 @@
+package question2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import utils.Hash256;
+import utils.ShaHash;
+
+/**
+ * Sparse Merkle tree over 2^256 slots for key/value state
+ *
+ * A key lives in the leaf slot named by SHA-256 of the key, bit 0 of that
+ * hash choosing the root's child. A filled leaf is SHA-256(0x00 || keyHash ||
+ * valueHash), an empty one is all zero bytes, and an inner node is
+ * SHA-256(0x01 || left || right) over raw 32-byte children. The hash of an
+ * empty subtree of each height is precomputed once, so empty parts of the
+ * tree are never hashed.
+ *
+ * Only two kinds of node are stored, keyed by (height, path prefix): branch
+ * nodes whose subtree holds two or more keys, and for every key the topmost
+ * node whose subtree holds only that key. Everything under such a node is
+ * defaults plus one path, hashed on demand. That keeps two to three map
+ * entries per key, and put, remove and proof each cost at most a few times
+ * 256 hashes. Not thread safe.
+ */
+public class SparseMerkleTree {
+
+  public static final int DEPTH = 256;
+
+  private static final byte LEAF_PREFIX = 0x00;
+  private static final byte NODE_PREFIX = 0x01;
+
+  // DEFAULTS[h] is the hash of an empty subtree of height h, DEFAULTS[0] an empty leaf
+  private static final Hash256[] DEFAULTS = new Hash256[DEPTH + 1];
+
+  private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[1 + 2 * Hash256.BYTES]);
+
+  static {
+    DEFAULTS[0] = Hash256.ZERO;
+    for (int height = 1; height <= DEPTH; height++) {
+      DEFAULTS[height] = hashNode(DEFAULTS[height - 1], DEFAULTS[height - 1]);
+    }
+  }
+
+  private final Map<NodeKey, Node> nodes = new HashMap<>();
+  private int size;
+
+  /**
+   * Root hash, the empty-tree default when no key is set
+   */
+  public Hash256 root() {
+    Node root = nodes.get(new NodeKey(DEPTH, Hash256.ZERO));
+    return root == null ? DEFAULTS[DEPTH] : root.hash;
+  }
+
+  /**
+   * Number of keys with a value
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Map entries held, about two per key
+   */
+  public int storedNodes() {
+    return nodes.size();
+  }
+
+  /**
+   * Hash of an empty subtree of the given height
+   */
+  public static Hash256 defaultHash(int height) {
+    return DEFAULTS[height];
+  }
+
+  public static Hash256 keyHash(String key) {
+    return ShaHash.hash256(key);
+  }
+
+  /**
+   * Leaf hash of a key holding value
+   */
+  public static Hash256 leafHash(String key, String value) {
+    return leafHash(keyHash(key), ShaHash.hash256(value));
+  }
+
+  public static Hash256 leafHash(Hash256 keyHash, Hash256 valueHash) {
+    return hash(LEAF_PREFIX, keyHash, valueHash);
+  }
+
+  /**
+   * Parent of two children, short-circuited when both are the same empty subtree
+   */
+  static Hash256 hashNode(Hash256 left, Hash256 right) {
+    return hash(NODE_PREFIX, left, right);
+  }
+
+  static Hash256 parent(int childHeight, Hash256 left, Hash256 right) {
+    Hash256 empty = DEFAULTS[childHeight];
+    if (left.equals(empty) && right.equals(empty)) {
+      return DEFAULTS[childHeight + 1];
+    }
+    return hashNode(left, right);
+  }
+
+  /**
+   * Sets key to value, a null value removes the key
+   */
+  public void put(String key, String value) {
+    if (value == null) {
+      remove(key);
+      return;
+    }
+    Hash256 path = keyHash(key);
+    Hash256 leaf = leafHash(path, ShaHash.hash256(value));
+    if (lookup(path) == null) {
+      size++;
+    }
+    insert(DEPTH, path, leaf);
+  }
+
+  public void remove(String key) {
+    Hash256 path = keyHash(key);
+    if (lookup(path) == null) {
+      return;
+    }
+    delete(DEPTH, path);
+    size--;
+  }
+
+  public boolean contains(String key) {
+    return lookup(keyHash(key)) != null;
+  }
+
+  /**
+   * Sibling hashes along the key's path, valid as a membership proof when the
+   * key is set and as a non-membership proof otherwise
+   */
+  public SparseMerkleProof proof(String key) {
+    Hash256 path = keyHash(key);
+    Hash256[] siblings = new Hash256[DEPTH];
+    int height = DEPTH;
+    Node node = nodes.get(key(height, path));
+    while (node != null && node.leafKey == null) {
+      Node sibling = nodes.get(key(height - 1, path.flipBit(DEPTH - height)));
+      if (sibling != null) {
+        siblings[height - 1] = sibling.hash;
+      }
+      height--;
+      node = nodes.get(key(height, path));
+    }
+    if (node != null && !node.leafKey.equals(path)) {
+      // Another key owns this subtree, its own path becomes a sibling where the two paths part
+      int splitHeight = DEPTH - common(path, node.leafKey);
+      siblings[splitHeight - 1] = spine(splitHeight - 1, node.leafKey, node.leafHash);
+    }
+    return new SparseMerkleProof(siblings);
+  }
+
+  /**
+   * Leaf hash stored for the key's path, or null when the slot is empty
+   */
+  private Hash256 lookup(Hash256 path) {
+    for (int height = DEPTH; height >= 0; height--) {
+      Node node = nodes.get(key(height, path));
+      if (node == null) {
+        return null;
+      }
+      if (node.leafKey != null) {
+        return node.leafKey.equals(path) ? node.leafHash : null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Puts the leaf under the node at height on the key's path and rehashes that node
+   */
+  private void insert(int height, Hash256 path, Hash256 leaf) {
+    NodeKey key = key(height, path);
+    Node current = nodes.get(key);
+    if (current == null || (current.leafKey != null && current.leafKey.equals(path))) {
+      nodes.put(key, new Node(spine(height, path, leaf), path, leaf));
+      return;
+    }
+    if (current.leafKey != null) {
+      // Two keys now share this subtree: both go where their paths part, branches above
+      int splitHeight = DEPTH - common(path, current.leafKey);
+      nodes.put(key(splitHeight - 1, current.leafKey),
+          new Node(spine(splitHeight - 1, current.leafKey, current.leafHash), current.leafKey, current.leafHash));
+      nodes.put(key(splitHeight - 1, path), new Node(spine(splitHeight - 1, path, leaf), path, leaf));
+      for (int h = splitHeight; h <= height; h++) {
+        rehashBranch(h, path);
+      }
+      return;
+    }
+    insert(height - 1, path, leaf);
+    rehashBranch(height, path);
+  }
+
+  /**
+   * Removes the key's leaf below height
+   * @return the node left at height on the key's path, null when that subtree is now empty
+   */
+  private Node delete(int height, Hash256 path) {
+    NodeKey key = key(height, path);
+    Node current = nodes.get(key);
+    if (current.leafKey != null) {
+      nodes.remove(key);
+      return null;
+    }
+    Node child = delete(height - 1, path);
+    NodeKey siblingKey = key(height - 1, path.flipBit(DEPTH - height));
+    Node sibling = nodes.get(siblingKey);
+
+    // A subtree down to one key is stored as that key's single node again
+    Node only = child == null && sibling != null && sibling.leafKey != null ? sibling
+        : sibling == null && child != null && child.leafKey != null ? child
+        : null;
+    if (only != null) {
+      nodes.remove(key(height - 1, only.leafKey));
+      boolean right = only.leafKey.bit(DEPTH - height);
+      Hash256 hash = right ? hashNode(DEFAULTS[height - 1], only.hash) : hashNode(only.hash, DEFAULTS[height - 1]);
+      Node lifted = new Node(hash, only.leafKey, only.leafHash);
+      nodes.put(key, lifted);
+      return lifted;
+    }
+    return rehashBranch(height, path);
+  }
+
+  private Node rehashBranch(int height, Hash256 path) {
+    Node onPath = nodes.get(key(height - 1, path));
+    Node offPath = nodes.get(key(height - 1, path.flipBit(DEPTH - height)));
+    boolean pathGoesRight = path.bit(DEPTH - height);
+    Node left = pathGoesRight ? offPath : onPath;
+    Node right = pathGoesRight ? onPath : offPath;
+    Hash256 hash = parent(height - 1,
+        left == null ? DEFAULTS[height - 1] : left.hash,
+        right == null ? DEFAULTS[height - 1] : right.hash);
+    Node branch = new Node(hash, null, null);
+    nodes.put(key(height, path), branch);
+    return branch;
+  }
+
+  /**
+   * Hash of a subtree of the given height holding only this leaf
+   */
+  private static Hash256 spine(int height, Hash256 path, Hash256 leaf) {
+    Hash256 hash = leaf;
+    for (int h = 0; h < height; h++) {
+      hash = path.bit(DEPTH - 1 - h) ? hashNode(DEFAULTS[h], hash) : hashNode(hash, DEFAULTS[h]);
+    }
+    return hash;
+  }
+
+  private static int common(Hash256 a, Hash256 b) {
+    return a.xor(b).leadingZeroBits();
+  }
+
+  private static NodeKey key(int height, Hash256 path) {
+    return new NodeKey(height, path.prefix(DEPTH - height));
+  }
+
+  private static Hash256 hash(byte prefix, Hash256 left, Hash256 right) {
+    byte[] input = SCRATCH.get();
+    input[0] = prefix;
+    left.writeTo(input, 1);
+    right.writeTo(input, 1 + Hash256.BYTES);
+    return ShaHash.hash256(input, 0, input.length);
+  }
+
+  /**
+   * Height and the path bits above it, which together name one node
+   */
+  private static final class NodeKey {
+    private final int height;
+    private final Hash256 prefix;
+
+    NodeKey(int height, Hash256 prefix) {
+      this.height = height;
+      this.prefix = prefix;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof NodeKey)) {
+        return false;
+      }
+      NodeKey key = (NodeKey) other;
+      return height == key.height && prefix.equals(key.prefix);
+    }
+
+    @Override
+    public int hashCode() {
+      // Deep prefixes of nearby keys may differ only in the low words, mix them all in
+      return Long.hashCode(prefix.word(0) * 31 + prefix.word(1) * 17 + prefix.word(2) * 7 + prefix.word(3)) * 31 + height;
+    }
+  }
+
+  /**
+   * Stored node: a branch when leafKey is null, otherwise the top of a single key's subtree
+   */
+  private static final class Node {
+    private final Hash256 hash;
+    private final Hash256 leafKey;
+    private final Hash256 leafHash;
+
+    Node(Hash256 hash, Hash256 leafKey, Hash256 leafHash) {
+      this.hash = hash;
+      this.leafKey = leafKey;
+      this.leafHash = leafHash;
+    }
+  }
+}
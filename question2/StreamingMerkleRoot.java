@@ -0,0 +1,141 @@
+package question2;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import question2.MerkleTree.HashMode;
+import utils.Hash256;
+import utils.ShaHash;
+
+/**
+ * Merkle root of leaves that arrive one at a time
+ *
+ * Keeps at most one finished subtree root per level: adding a leaf merges
+ * equal-sized subtrees like a binary counter, so memory is O(log n) hashes
+ * however many leaves pass through. root() then folds the pending subtrees
+ * from the bottom up, duplicating the last node of every odd level, which
+ * gives the same root as Q2_i.buildMerkleTree on the whole list.
+ */
+public class StreamingMerkleRoot {
+
+  private final HashMode hashMode;
+  // pending[level] is a complete subtree of 2^level leaves waiting for its right sibling
+  private final Hash256[] pending = new Hash256[Long.SIZE];
+  private long count;
+
+  public StreamingMerkleRoot() {
+    this(HashMode.HEX_CONCAT);
+  }
+
+  public StreamingMerkleRoot(HashMode hashMode) {
+    this.hashMode = hashMode;
+  }
+
+  /**
+   * Same root as buildMerkleTree on every element of the iterator
+   */
+  public static Hash256 rootOf(Iterator<String> leaves) {
+    return new StreamingMerkleRoot().addAll(leaves).root();
+  }
+
+  public static Hash256 rootOf(Stream<String> leaves) {
+    return rootOf(leaves.iterator());
+  }
+
+  /**
+   * Root over the lines of a UTF-8 text file, one leaf per line, read without loading the file
+   */
+  public static Hash256 rootOfFile(Path file) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      StreamingMerkleRoot root = new StreamingMerkleRoot();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        root.add(line);
+      }
+      return root.root();
+    }
+  }
+
+  public StreamingMerkleRoot add(String data) {
+    Hash256 node = ShaHash.hash256(data);
+    int level = 0;
+    while (pending[level] != null) {
+      node = hashMode.combine(pending[level], node);
+      pending[level] = null;
+      level++;
+    }
+    pending[level] = node;
+    count++;
+    return this;
+  }
+
+  public StreamingMerkleRoot addAll(Iterator<String> leaves) {
+    while (leaves.hasNext()) {
+      add(leaves.next());
+    }
+    return this;
+  }
+
+  /**
+   * Number of leaves added so far
+   */
+  public long count() {
+    return count;
+  }
+
+  /**
+   * Pending subtree roots currently held, at most log2(count) + 1
+   */
+  public int pendingCount() {
+    int held = 0;
+    for (Hash256 node : pending) {
+      if (node != null) {
+        held++;
+      }
+    }
+    return held;
+  }
+
+  /**
+   * Root of the leaves added so far, more leaves may still be added afterwards
+   */
+  public Hash256 root() {
+    if (count == 0) {
+      throw new IllegalStateException("No leaves added");
+    }
+    // carry is the unfinished rightmost node of the current level
+    Hash256 carry = null;
+    for (int level = 0; level < pending.length; level++) {
+      Hash256 left = pending[level];
+      boolean onlyNodeOfLevel = !pendingAbove(level) && (left == null || carry == null);
+      if (left == null && carry == null) {
+        continue;
+      }
+      if (onlyNodeOfLevel) {
+        return left != null ? left : carry;
+      }
+      if (left != null && carry != null) {
+        carry = hashMode.combine(left, carry);
+      } else {
+        // Last node of an odd level is paired with itself
+        Hash256 last = left != null ? left : carry;
+        carry = hashMode.combine(last, last);
+      }
+    }
+    return carry;
+  }
+
+  private boolean pendingAbove(int level) {
+    for (int above = level + 1; above < pending.length; above++) {
+      if (pending[above] != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
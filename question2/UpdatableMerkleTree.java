@@ -0,0 +1,181 @@
+package question2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import question2.MerkleTree.HashMode;
+import question2.Q2_ii.ProofNode;
+import utils.Hash256;
+import utils.ShaHash;
+
+/**
+ * Merkle tree that changes in place instead of being rebuilt
+ *
+ * Each level is a growable byte[] of 32-byte slots, the node rules are the
+ * same as MerkleTree. updateLeaf rehashes the path from one leaf to the root.
+ * append adds a leaf and rehashes only the right spine: on every level just
+ * the last parent can change, either because its duplicated right child is
+ * now a real node or because a new parent slot starts. Both are O(log n)
+ * hashes. Not thread safe.
+ */
+public class UpdatableMerkleTree {
+
+  private static final int SLOT = Hash256.BYTES;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final HashMode hashMode;
+  private byte[][] levels = new byte[0][];
+  private int[] levelSize = new int[0];
+
+  public UpdatableMerkleTree() {
+    this(HashMode.HEX_CONCAT);
+  }
+
+  public UpdatableMerkleTree(HashMode hashMode) {
+    this.hashMode = hashMode;
+  }
+
+  /**
+   * Starts from a bulk build of dataItems, same root as new MerkleTree(dataItems)
+   */
+  public UpdatableMerkleTree(List<String> dataItems) {
+    this(new MerkleTree(dataItems));
+  }
+
+  /**
+   * Copies the levels of an existing tree
+   */
+  public UpdatableMerkleTree(MerkleTree tree) {
+    this.hashMode = tree.hashMode();
+    levels = new byte[tree.levelCount()][];
+    levelSize = new int[tree.levelCount()];
+    for (int level = 0; level < tree.levelCount(); level++) {
+      levelSize[level] = tree.levelSize(level);
+      levels[level] = new byte[Math.max(INITIAL_CAPACITY, levelSize[level]) * SLOT];
+      tree.copyLevel(level, levels[level], 0);
+    }
+  }
+
+  /**
+   * Number of leaves
+   */
+  public int size() {
+    return levelSize.length == 0 ? 0 : levelSize[0];
+  }
+
+  public int levelCount() {
+    return levelSize.length;
+  }
+
+  public int levelSize(int level) {
+    return levelSize[level];
+  }
+
+  public HashMode hashMode() {
+    return hashMode;
+  }
+
+  public Hash256 root() {
+    if (size() == 0) {
+      throw new IllegalStateException("Tree has no leaves");
+    }
+    return node(levelCount() - 1, 0);
+  }
+
+  public Hash256 node(int level, int index) {
+    return Hash256.fromBytes(levels[level], index * SLOT);
+  }
+
+  /**
+   * Replaces the data of one leaf and rehashes its path to the root
+   */
+  public void updateLeaf(int index, String data) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Leaf index " + index + " out of range for " + size() + " leaves");
+    }
+    hashLeaf(index, data);
+    for (int level = 1; level < levelCount(); level++) {
+      index = MerkleTree.parent(index);
+      rehash(level, index);
+    }
+  }
+
+  /**
+   * Adds a leaf at the end, growing the tree by a level when the old root gets a sibling
+   * @return the index of the new leaf
+   */
+  public int append(String data) {
+    if (levelCount() == 0) {
+      addLevel();
+    }
+    int index = levelSize[0];
+    ensureSlot(0, index);
+    hashLeaf(index, data);
+
+    for (int level = 0; levelSize[level] > 1; level++) {
+      if (level + 1 == levelCount()) {
+        addLevel();
+      }
+      index = MerkleTree.parent(index);
+      ensureSlot(level + 1, index);
+      rehash(level + 1, index);
+    }
+    return levelSize[0] - 1;
+  }
+
+  /**
+   * Sibling hashes from the leaf at index up to the root, same format as MerkleTree.proof
+   */
+  public List<ProofNode> proof(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Leaf index " + index + " out of range for " + size() + " leaves");
+    }
+    List<ProofNode> proof = new ArrayList<>(levelCount() - 1);
+    for (int level = 0; level < levelCount() - 1; level++) {
+      proof.add(new ProofNode(node(level, sibling(level, index)), (index & 1) == 1));
+      index = MerkleTree.parent(index);
+    }
+    return proof;
+  }
+
+  private void hashLeaf(int index, String data) {
+    byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+    ShaHash.sha256(bytes, levels[0], index * SLOT);
+  }
+
+  /**
+   * Recomputes one parent from its children on the level below
+   */
+  private void rehash(int level, int parent) {
+    int left = MerkleTree.leftChild(parent);
+    byte[] children = levels[level - 1];
+    hashMode.combine(children, left * SLOT, sibling(level - 1, left) * SLOT, levels[level], parent * SLOT);
+  }
+
+  private int sibling(int level, int index) {
+    int sibling = index ^ 1;
+    return sibling < levelSize[level] ? sibling : index;
+  }
+
+  private void addLevel() {
+    int count = levels.length;
+    levels = Arrays.copyOf(levels, count + 1);
+    levelSize = Arrays.copyOf(levelSize, count + 1);
+    levels[count] = new byte[INITIAL_CAPACITY * SLOT];
+  }
+
+  /**
+   * Makes index a valid slot of level, growing the level by one node when index is new
+   */
+  private void ensureSlot(int level, int index) {
+    if (index < levelSize[level]) {
+      return;
+    }
+    if ((index + 1) * SLOT > levels[level].length) {
+      levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+    }
+    levelSize[level] = index + 1;
+  }
+}
@@ -0,0 +1,502 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Digital Signature System over a pluggable SignatureScheme, 2048-bit RSA by default
+ */
+public class DigitalSignatureSystem {
+
+    /**
+     * One message with the signature and public key it claims
+     */
+    public static class SignedMessage {
+        private final String message;
+        private final byte[] signature;
+        private final PublicKey publicKey;
+        private final SignatureScheme scheme;
+
+        /**
+         * Entry whose signature algorithm is picked from the key type, see SignatureScheme.signatureAlgorithmFor
+         */
+        public SignedMessage(String message, byte[] signature, PublicKey publicKey) {
+            this(message, signature, publicKey, null);
+        }
+
+        public SignedMessage(String message, byte[] signature, PublicKey publicKey, SignatureScheme scheme) {
+            this.message = message;
+            this.signature = signature;
+            this.publicKey = publicKey;
+            this.scheme = scheme;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public byte[] getSignature() {
+            return signature;
+        }
+
+        public PublicKey getPublicKey() {
+            return publicKey;
+        }
+
+        /**
+         * Scheme the message was signed with, null when it is to be inferred from the key
+         */
+        public SignatureScheme getScheme() {
+            return scheme;
+        }
+    }
+
+    // Batches smaller than this are verified on the calling thread
+    private static final int MIN_PARALLEL_BATCH = 64;
+    // Entries a worker claims at a time, small enough to keep every thread busy to the end
+    private static final int BATCH_BLOCK = 16;
+
+    private static final int WORKER_COUNT = Runtime.getRuntime().availableProcessors();
+
+    // Provider lookup is done once per thread and algorithm, initVerify only when the key changes
+    private static final ThreadLocal<Map<String, Verifier>> VERIFIERS = ThreadLocal.withInitial(HashMap::new);
+    // Same for signing, initSign only when the thread last signed with another key
+    private static final ThreadLocal<Map<String, Signer>> SIGNERS = ThreadLocal.withInitial(HashMap::new);
+
+    private final LongAdder signCount = new LongAdder();
+    private final LongAdder signNanos = new LongAdder();
+    private final LongAccumulator maxSignNanos = new LongAccumulator(Long::max, 0);
+
+    private final SignatureScheme scheme;
+    private KeyPair keyPair;
+    private PublicKey publicKey;
+    private PrivateKey privateKey;
+
+    /**
+     * System using 2048-bit RSA with SHA-256
+     */
+    public DigitalSignatureSystem() {
+        this(SignatureScheme.Standard.RSA_2048);
+    }
+
+    public DigitalSignatureSystem(SignatureScheme scheme) {
+        this.scheme = scheme;
+    }
+
+    /**
+     * System using an existing key pair of the given scheme, nothing is printed
+     * @throws IllegalArgumentException when the keys do not fit the scheme or are not a pair
+     */
+    public DigitalSignatureSystem(SignatureScheme scheme, KeyPair keyPair) {
+        this.scheme = scheme;
+        try {
+            scheme.checkKeyPair(keyPair);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Key pair does not fit " + scheme + ": " + e.getMessage(), e);
+        }
+        setKeyPair(keyPair);
+    }
+
+    /**
+     * Generates a new key pair for the scheme
+     */
+    public void generateKeyPair() throws NoSuchAlgorithmException {
+        setKeyPair(scheme.generateKeyPair());
+
+        System.out.println(scheme.getKeyAlgorithm() + " Key Pair generated successfully");
+        System.out.println("  - Key Size: " + scheme.getKeySize() + " bits");
+        System.out.println("  - Algorithm: " + scheme.getKeyAlgorithm());
+        System.out.println("  - Signature Algorithm: " + scheme.getSignatureAlgorithm());
+    }
+
+    /**
+     * Loads the key pair saved in file, or takes one from the manager's pool
+     * and saves it there, so only the first run pays for key generation
+     */
+    public void loadOrGenerateKeyPair(KeyManager keyManager, Path file) throws IOException, GeneralSecurityException {
+        if (!keyManager.getScheme().equals(scheme)) {
+            throw new IllegalArgumentException("Key manager holds " + keyManager.getScheme() + " keys, system uses " + scheme);
+        }
+        boolean saved = Files.exists(file);
+        setKeyPair(keyManager.loadOrCreate(file));
+
+        System.out.println(scheme.getKeyAlgorithm() + " Key Pair " + (saved ? "loaded from " : "generated and saved to ") + file);
+        System.out.println("  - Key Size: " + scheme.getKeySize() + " bits");
+        System.out.println("  - Algorithm: " + scheme.getKeyAlgorithm());
+        System.out.println("  - Signature Algorithm: " + scheme.getSignatureAlgorithm());
+    }
+
+    private void setKeyPair(KeyPair keyPair) {
+        this.keyPair = keyPair;
+        this.publicKey = keyPair.getPublic();
+        this.privateKey = keyPair.getPrivate();
+    }
+
+    public SignatureScheme getScheme() {
+        return scheme;
+    }
+
+    /**
+     * Signs a message using the private key
+     */
+    public byte[] signMessage(String message) throws Exception {
+        if (privateKey == null) {
+            throw new IllegalStateException("Private key not available. Generate key pair first.");
+        }
+
+        byte[] input = message.getBytes(StandardCharsets.UTF_8);
+        byte[] digitalSignature = new byte[signatureLength()];
+        int length = sign(input, 0, input.length, digitalSignature, 0);
+        System.out.println("Message signed successfully");
+
+        return length == digitalSignature.length ? digitalSignature : Arrays.copyOf(digitalSignature, length);
+    }
+
+    /**
+     * Output space sign needs, the largest signature the scheme can produce.
+     * ECDSA signatures vary in length, the others always fill it.
+     */
+    public int signatureLength() {
+        return scheme.getMaxSignatureLength();
+    }
+
+    /**
+     * Signs message[offset .. offset + length) into out without printing or
+     * allocating a Signature, safe to call from many threads at once
+     * @return number of signature bytes written at outOffset
+     */
+    public int sign(byte[] message, int offset, int length, byte[] out, int outOffset) throws SignatureException {
+        int signatureLength = checkOutput(out, outOffset);
+        long start = System.nanoTime();
+        Signer signer = signer(scheme.getSignatureAlgorithm());
+        Signature signature = signer.ready(privateKey);
+        try {
+            signature.update(message, offset, length);
+            int written = signature.sign(out, outOffset, signatureLength);
+            recordSign(start);
+            return written;
+        } catch (SignatureException e) {
+            signer.reset();
+            throw e;
+        }
+    }
+
+    /**
+     * Signs the remaining bytes of message into out, consuming them, without printing
+     * @return number of signature bytes written at outOffset
+     */
+    public int sign(ByteBuffer message, byte[] out, int outOffset) throws SignatureException {
+        int signatureLength = checkOutput(out, outOffset);
+        long start = System.nanoTime();
+        Signer signer = signer(scheme.getSignatureAlgorithm());
+        Signature signature = signer.ready(privateKey);
+        try {
+            signature.update(message);
+            int written = signature.sign(out, outOffset, signatureLength);
+            recordSign(start);
+            return written;
+        } catch (SignatureException e) {
+            signer.reset();
+            throw e;
+        }
+    }
+
+    /**
+     * Signatures produced so far by this system
+     */
+    public long getSignCount() {
+        return signCount.sum();
+    }
+
+    /**
+     * Time spent signing summed over all threads, in nanoseconds
+     */
+    public long getTotalSignNanos() {
+        return signNanos.sum();
+    }
+
+    public long getMaxSignNanos() {
+        return maxSignNanos.get();
+    }
+
+    public double getAverageSignMicros() {
+        long count = signCount.sum();
+        return count == 0 ? 0 : signNanos.sum() / 1e3 / count;
+    }
+
+    private int checkOutput(byte[] out, int outOffset) {
+        if (privateKey == null) {
+            throw new IllegalStateException("Private key not available. Generate key pair first.");
+        }
+        int signatureLength = signatureLength();
+        if (outOffset < 0 || out.length - outOffset < signatureLength) {
+            throw new IllegalArgumentException("Output needs " + signatureLength + " bytes at offset " + outOffset
+                    + ", buffer holds " + out.length);
+        }
+        return signatureLength;
+    }
+
+    private void recordSign(long start) {
+        long elapsed = System.nanoTime() - start;
+        signCount.increment();
+        signNanos.add(elapsed);
+        maxSignNanos.accumulate(elapsed);
+    }
+
+    /**
+     * Verifies a signature against a message using the public key
+     */
+    public boolean verifySignature(String message, byte[] signature) throws Exception {
+        if (publicKey == null) {
+            throw new IllegalStateException("Public key not available. Generate key pair first.");
+        }
+
+        return verifier(scheme.getSignatureAlgorithm()).verify(message.getBytes(StandardCharsets.UTF_8), signature, publicKey);
+    }
+
+    /**
+     * Verifies every entry across a pool of worker threads
+     * @return bit i set when entry i has a valid signature
+     */
+    public static BitSet verifyBatch(List<SignedMessage> entries) {
+        return verifyBatch(entries, false);
+    }
+
+    /**
+     * Verifies every entry across a pool of worker threads. Malformed
+     * signatures count as invalid rather than throwing.
+     * @param failFast stop all workers at the first invalid entry; bits of
+     *                 entries not checked by then stay clear, so only a result
+     *                 with every bit set means the whole batch is valid
+     * @return bit i set when entry i has a valid signature
+     */
+    public static BitSet verifyBatch(List<SignedMessage> entries, boolean failFast) {
+        boolean[] valid = new boolean[entries.size()];
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        Runnable worker = () -> {
+            int from;
+            while (!(failFast && failed.get()) && (from = next.getAndAdd(BATCH_BLOCK)) < valid.length) {
+                int to = Math.min(from + BATCH_BLOCK, valid.length);
+                for (int i = from; i < to; i++) {
+                    SignedMessage entry = entries.get(i);
+                    valid[i] = verifyQuietly(entry.getScheme(), entry.getMessage().getBytes(StandardCharsets.UTF_8),
+                            entry.getSignature(), entry.getPublicKey());
+                    if (!valid[i] && failFast) {
+                        failed.set(true);
+                        break;
+                    }
+                }
+            }
+        };
+
+        if (valid.length < MIN_PARALLEL_BATCH || WORKER_COUNT == 1) {
+            worker.run();
+        } else {
+            List<Future<?>> running = new ArrayList<>(WORKER_COUNT);
+            for (int w = 0; w < WORKER_COUNT; w++) {
+                running.add(WorkerPool.EXECUTOR.submit(worker));
+            }
+            for (Future<?> future : running) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted during batch verification", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Batch verification worker failed", e.getCause());
+                }
+            }
+        }
+
+        BitSet result = new BitSet(valid.length);
+        for (int i = 0; i < valid.length; i++) {
+            if (valid[i]) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Displays the generated keys (Base64 encoded for readability)
+     */
+    public void displayKeys() {
+        System.out.println("\n=== GENERATED KEYS ===");
+
+        // Display Public Key
+        String publicKeyBase64 = Base64.getEncoder().encodeToString(publicKey.getEncoded());
+        System.out.println("\nPublic Key (Base64):");
+        System.out.println("Format: " + publicKey.getFormat());
+        System.out.println("Algorithm: " + publicKey.getAlgorithm());
+        printFormattedKey(publicKeyBase64);
+
+        // Display Private Key (for academic purposes only)
+        String privateKeyBase64 = Base64.getEncoder().encodeToString(privateKey.getEncoded());
+        System.out.println("\nPrivate Key (Base64) - *FOR ACADEMIC PURPOSES ONLY*:");
+        System.out.println("Format: " + privateKey.getFormat());
+        System.out.println("Algorithm: " + privateKey.getAlgorithm());
+        printFormattedKey(privateKeyBase64);
+
+        System.out.println("\nWARNING: In production, NEVER expose private keys!");
+    }
+
+    /**
+     * Displays signature results
+     */
+    public void displaySignatureResults(String message, byte[] signature) {
+        System.out.println("\n=== SIGNATURE RESULTS ===");
+        System.out.println("Original Message: \"" + message + "\"");
+        System.out.println("Message Length: " + message.length() + " characters");
+
+        String signatureBase64 = Base64.getEncoder().encodeToString(signature);
+        System.out.println("\nDigital Signature (Base64):");
+        System.out.println("Signature Length: " + signature.length + " bytes");
+        printFormattedKey(signatureBase64);
+    }
+
+    /**
+     * Helper method to format long Base64 strings for better readability
+     */
+    private void printFormattedKey(String base64String) {
+        int lineLength = 64;
+        for (int i = 0; i < base64String.length(); i += lineLength) {
+            int end = Math.min(i + lineLength, base64String.length());
+            System.out.println(base64String.substring(i, end));
+        }
+    }
+
+    // Getters for testing purposes
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    public PrivateKey getPrivateKey() {
+        return privateKey;
+    }
+
+    private static Signer signer(String algorithm) {
+        return SIGNERS.get().computeIfAbsent(algorithm, Signer::new);
+    }
+
+    private static Verifier verifier(String algorithm) {
+        return VERIFIERS.get().computeIfAbsent(algorithm, Verifier::new);
+    }
+
+    /**
+     * Verifies with the given scheme, or the one matching the key's type when
+     * scheme is null, treating unusable keys and malformed signatures as invalid
+     */
+    static boolean verifyQuietly(SignatureScheme scheme, byte[] message, byte[] signature, PublicKey key) {
+        if (key == null || signature == null) {
+            return false;
+        }
+        try {
+            String algorithm = scheme != null ? scheme.getSignatureAlgorithm() : SignatureScheme.signatureAlgorithmFor(key);
+            return verifier(algorithm).verify(message, signature, key);
+        } catch (IllegalArgumentException | InvalidKeyException | SignatureException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Daemon threads shared by all batches, started on first use
+     */
+    private static final class WorkerPool {
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(WORKER_COUNT, task -> {
+            Thread thread = new Thread(task, "signature-verifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Signature newSignature(String algorithm) {
+        try {
+            return Signature.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " not available", e);
+        }
+    }
+
+    /**
+     * Per-thread Signature that stays initialized for the last key it signed with
+     */
+    private static final class Signer {
+        private final Signature signature;
+        private PrivateKey currentKey;
+
+        Signer(String algorithm) {
+            signature = newSignature(algorithm);
+        }
+
+        /**
+         * The thread's Signature ready to sign with key, sign() leaves it that way
+         */
+        Signature ready(PrivateKey key) {
+            if (key != currentKey) {
+                currentKey = null;
+                try {
+                    signature.initSign(key);
+                } catch (InvalidKeyException e) {
+                    throw new IllegalStateException("Cannot sign with this private key", e);
+                }
+                currentKey = key;
+            }
+            return signature;
+        }
+
+        /**
+         * Forces initSign on next use, after an exception left partial input behind
+         */
+        void reset() {
+            currentKey = null;
+        }
+    }
+
+    /**
+     * Per-thread Signature that stays initialized for the last key it verified with
+     */
+    private static final class Verifier {
+        private final Signature signature;
+        private PublicKey currentKey;
+
+        Verifier(String algorithm) {
+            signature = newSignature(algorithm);
+        }
+
+        boolean verify(byte[] message, byte[] signatureBytes, PublicKey key)
+                throws InvalidKeyException, SignatureException {
+            if (key != currentKey) {
+                currentKey = null;
+                signature.initVerify(key);
+                currentKey = key;
+            }
+            try {
+                signature.update(message);
+                // verify() leaves the object initialized for the same key
+                return signature.verify(signatureBytes);
+            } catch (SignatureException e) {
+                // A failed verify may leave partial state behind, re-initialize next time
+                currentKey = null;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out key pairs of one scheme without making callers wait for key generation
+ *
+ * A daemon thread keeps a bounded pool of pre-generated pairs topped up, so
+ * nextKeyPair() normally returns at once and only generates on the calling
+ * thread when the pool has run dry. Key pairs can be saved to and loaded
+ * from a PEM file holding the PKCS#8 private key and the X.509 public key,
+ * so a restart reuses the same keys instead of generating new ones.
+ */
+public class KeyManager implements AutoCloseable {
+
+    private static final String PRIVATE_KEY_LABEL = "PRIVATE KEY";
+    private static final String PUBLIC_KEY_LABEL = "PUBLIC KEY";
+
+    private final SignatureScheme scheme;
+    private final BlockingQueue<KeyPair> pool;
+    private final Thread filler;
+    private final LongAdder poolHits = new LongAdder();
+    private final LongAdder poolMisses = new LongAdder();
+    // Why the background thread stopped early, rethrown once the pool has run dry
+    private volatile Exception fillFailure;
+
+    /**
+     * Starts filling a pool of poolSize pairs in the background
+     */
+    public KeyManager(SignatureScheme scheme, int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1: " + poolSize);
+        }
+        this.scheme = scheme;
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+        this.filler = new Thread(this::fill, "key-pool-" + scheme.getName());
+        filler.setDaemon(true);
+        // Foreground signing comes first, the pool only has to be ready by the next request
+        filler.setPriority(Thread.MIN_PRIORITY);
+        filler.start();
+    }
+
+    public SignatureScheme getScheme() {
+        return scheme;
+    }
+
+    /**
+     * A key pair from the pool, or a freshly generated one when the pool is empty
+     * @throws NoSuchAlgorithmException or IllegalStateException when the
+     *         background generation failed and the pool is empty
+     */
+    public KeyPair nextKeyPair() throws NoSuchAlgorithmException {
+        KeyPair pooled = pool.poll();
+        if (pooled != null) {
+            poolHits.increment();
+            return pooled;
+        }
+        Exception failure = fillFailure;
+        if (failure instanceof NoSuchAlgorithmException) {
+            throw new NoSuchAlgorithmException(failure.getMessage(), failure);
+        } else if (failure != null) {
+            throw new IllegalStateException("Key generation for " + scheme.getName() + " failed", failure);
+        }
+        poolMisses.increment();
+        return scheme.generateKeyPair();
+    }
+
+    /**
+     * Pre-generated pairs waiting in the pool
+     */
+    public int available() {
+        return pool.size();
+    }
+
+    public long getPoolHits() {
+        return poolHits.sum();
+    }
+
+    /**
+     * Requests that had to generate a pair on the calling thread
+     */
+    public long getPoolMisses() {
+        return poolMisses.sum();
+    }
+
+    /**
+     * Loads the key pair saved in file, or takes one from the pool and saves it there
+     */
+    public KeyPair loadOrCreate(Path file) throws IOException, GeneralSecurityException {
+        if (Files.exists(file)) {
+            return load(file);
+        }
+        KeyPair keyPair = nextKeyPair();
+        save(keyPair, file);
+        return keyPair;
+    }
+
+    /**
+     * Reads a key pair written by save and checks it belongs to this manager's
+     * scheme: the key size must match and the two keys must be a pair
+     */
+    public KeyPair load(Path file) throws IOException, GeneralSecurityException {
+        String pem = Files.readString(file, StandardCharsets.US_ASCII);
+        KeyFactory factory = KeyFactory.getInstance(scheme.getKeyAlgorithm());
+        PrivateKey privateKey = factory.generatePrivate(new PKCS8EncodedKeySpec(pemBlock(pem, PRIVATE_KEY_LABEL, file)));
+        PublicKey publicKey = factory.generatePublic(new X509EncodedKeySpec(pemBlock(pem, PUBLIC_KEY_LABEL, file)));
+        KeyPair keyPair = new KeyPair(publicKey, privateKey);
+        try {
+            scheme.checkKeyPair(keyPair);
+        } catch (InvalidKeyException e) {
+            throw new InvalidKeyException(file + ": " + e.getMessage(), e);
+        }
+        return keyPair;
+    }
+
+    /**
+     * Writes the key pair as PEM, readable by the owner only where the file
+     * system supports it. The file is replaced atomically, so a crash never
+     * leaves half a key behind.
+     */
+    public static void save(KeyPair keyPair, Path file) throws IOException {
+        String pem = pem(PRIVATE_KEY_LABEL, keyPair.getPrivate().getEncoded())
+                + pem(PUBLIC_KEY_LABEL, keyPair.getPublic().getEncoded());
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try {
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // Not a POSIX file system, rely on the directory's own access rules
+            }
+            Files.writeString(temp, pem, StandardCharsets.US_ASCII);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Stops the background thread, pooled pairs are discarded
+     */
+    @Override
+    public void close() {
+        filler.interrupt();
+        pool.clear();
+    }
+
+    private void fill() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // put blocks while the pool is full, which is what bounds it
+                pool.put(scheme.generateKeyPair());
+            }
+        } catch (InterruptedException e) {
+            // close() was called
+        } catch (NoSuchAlgorithmException | RuntimeException e) {
+            // Provider missing or rejecting the parameters, nextKeyPair reports it
+            fillFailure = e;
+        }
+    }
+
+    private static String pem(String label, byte[] der) {
+        return "-----BEGIN " + label + "-----\n"
+                + Base64.getMimeEncoder(64, new byte[] { '\n' }).encodeToString(der)
+                + "\n-----END " + label + "-----\n";
+    }
+
+    private static byte[] pemBlock(String pem, String label, Path file) throws IOException {
+        String begin = "-----BEGIN " + label + "-----";
+        String end = "-----END " + label + "-----";
+        int start = pem.indexOf(begin);
+        int stop = start < 0 ? -1 : pem.indexOf(end, start);
+        if (stop < 0) {
+            throw new IOException(file + " has no " + label + " block");
+        }
+        return Base64.getMimeDecoder().decode(pem.substring(start + begin.length(), stop));
+    }
+}
@@ -0,0 +1,212 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import question2.MerkleTree;
+import question2.ProofCodec;
+import question2.Q2_ii.ProofNode;
+import utils.Hash256;
+import utils.ShaHash;
+
+/**
+ * Signs a whole batch of messages with one private-key operation
+ *
+ * The SHA-256 hex digests of the messages become the leaves of a Q2_i Merkle
+ * tree, and only the root is signed. Each message gets a receipt holding that
+ * root signature and its own inclusion proof, so a batch of n messages costs
+ * one signature plus about 3n hashes. Checking a receipt takes one signature
+ * verification per batch, which the Verifier remembers, plus log2(n) hashes.
+ */
+public class MerkleBatchSigner {
+
+    // Signed ahead of the root so a batch signature can never pass as a signature on an ordinary message
+    private static final byte[] ROOT_DOMAIN = "Q3 Merkle batch root v1\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Everything needed to show one message was in a signed batch
+     */
+    public static class Receipt {
+        private final Hash256 root;
+        private final byte[] rootSignature;
+        private final byte[] proof;
+
+        public Receipt(Hash256 root, byte[] rootSignature, byte[] proof) {
+            this.root = root;
+            this.rootSignature = rootSignature;
+            this.proof = proof;
+        }
+
+        public Hash256 getRoot() {
+            return root;
+        }
+
+        /**
+         * Signature over the batch root, the same array is shared by every receipt of a batch
+         */
+        public byte[] getRootSignature() {
+            return rootSignature;
+        }
+
+        public int getLeafIndex() {
+            return ProofCodec.leafIndex(ByteBuffer.wrap(proof));
+        }
+
+        /**
+         * Inclusion proof in the Q2_ii form
+         */
+        public List<ProofNode> getProof() {
+            return ProofCodec.decode(ByteBuffer.wrap(proof));
+        }
+
+        /**
+         * Inclusion proof in the ProofCodec binary form
+         */
+        public byte[] getEncodedProof() {
+            return proof;
+        }
+
+        /**
+         * Serialized size: root, root signature and encoded proof
+         */
+        public int byteSize() {
+            return Hash256.BYTES + rootSignature.length + proof.length;
+        }
+    }
+
+    private final DigitalSignatureSystem signer;
+
+    public MerkleBatchSigner(DigitalSignatureSystem signer) {
+        this.signer = signer;
+    }
+
+    /**
+     * Signs every message with a single signature over their Merkle root
+     * @return one receipt per message, in order
+     */
+    public List<Receipt> signBatch(List<String> messages) throws SignatureException {
+        List<String> leaves = new ArrayList<>(messages.size());
+        for (String message : messages) {
+            leaves.add(ShaHash.sha256Hash(message));
+        }
+        MerkleTree tree = new MerkleTree(leaves);
+        Hash256 root = tree.root();
+
+        byte[] signature = new byte[signer.signatureLength()];
+        int length = signer.sign(rootMessage(root), 0, ROOT_DOMAIN.length + Hash256.BYTES, signature, 0);
+        byte[] rootSignature = length == signature.length ? signature : Arrays.copyOf(signature, length);
+
+        List<Receipt> receipts = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            receipts.add(new Receipt(root, rootSignature, ProofCodec.encode(i, tree.proof(i))));
+        }
+        return receipts;
+    }
+
+    private static byte[] rootMessage(Hash256 root) {
+        byte[] message = Arrays.copyOf(ROOT_DOMAIN, ROOT_DOMAIN.length + Hash256.BYTES);
+        root.writeTo(message, ROOT_DOMAIN.length);
+        return message;
+    }
+
+    /**
+     * Checks receipts, verifying each batch root signature only once. Safe to
+     * use from several threads.
+     */
+    public static class Verifier {
+        private final SignatureScheme scheme;
+        private final int maxCachedBatches;
+        // Root signatures already verified, by root and public key
+        private final Map<BatchKey, byte[]> verifiedBatches = new ConcurrentHashMap<>();
+        private final LongAdder signatureChecks = new LongAdder();
+
+        public Verifier() {
+            this(1 << 16);
+        }
+
+        /**
+         * @param maxCachedBatches remembered batches, the cache is emptied when it fills up
+         */
+        public Verifier(int maxCachedBatches) {
+            this(null, maxCachedBatches);
+        }
+
+        /**
+         * @param scheme scheme the roots were signed with, null to pick it from each key's type
+         * @param maxCachedBatches remembered batches, the cache is emptied when it fills up
+         */
+        public Verifier(SignatureScheme scheme, int maxCachedBatches) {
+            this.scheme = scheme;
+            this.maxCachedBatches = maxCachedBatches;
+        }
+
+        /**
+         * True when message is in a batch whose root publicKey signed, false for a missing key or receipt
+         */
+        public boolean verify(String message, Receipt receipt, PublicKey publicKey) {
+            if (publicKey == null || receipt == null || receipt.getRootSignature() == null) {
+                return false;
+            }
+            Hash256 leafHash = ShaHash.hash256(ShaHash.sha256Hash(message));
+            if (!ProofCodec.verify(ByteBuffer.wrap(receipt.getEncodedProof()), leafHash, receipt.getRoot())) {
+                return false;
+            }
+            BatchKey key = new BatchKey(receipt.getRoot(), publicKey);
+            byte[] verified = verifiedBatches.get(key);
+            if (verified != null && Arrays.equals(verified, receipt.getRootSignature())) {
+                return true;
+            }
+            signatureChecks.increment();
+            byte[] rootMessage = rootMessage(receipt.getRoot());
+            if (!DigitalSignatureSystem.verifyQuietly(scheme, rootMessage, receipt.getRootSignature(), publicKey)) {
+                return false;
+            }
+            if (verifiedBatches.size() >= maxCachedBatches) {
+                verifiedBatches.clear();
+            }
+            verifiedBatches.put(key, receipt.getRootSignature().clone());
+            return true;
+        }
+
+        /**
+         * Root signatures actually verified, as opposed to answered from the cache
+         */
+        public long getSignatureChecks() {
+            return signatureChecks.sum();
+        }
+
+        public void clearCache() {
+            verifiedBatches.clear();
+        }
+    }
+
+    private static final class BatchKey {
+        private final Hash256 root;
+        private final PublicKey publicKey;
+
+        BatchKey(Hash256 root, PublicKey publicKey) {
+            this.root = root;
+            this.publicKey = publicKey;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof BatchKey)) {
+                return false;
+            }
+            BatchKey key = (BatchKey) other;
+            return root.equals(key.root) && publicKey.equals(key.publicKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return root.hashCode() * 31 + publicKey.hashCode();
+        }
+    }
+}
@@ -1,18 +1,27 @@
-import java.security.*;
-import java.util.Base64;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Scanner;
 
 public class Q3 {
 
+    // Signing key kept between runs so a restart skips key generation
+    private static final Path KEY_FILE = Path.of("q3_keypair.pem");
+
     public static void main(String[] args) {
         try {
+            // Pre-generates spare key pairs in the background while the user types
+            KeyManager keyManager = new KeyManager(SignatureScheme.Standard.RSA_2048, 1);
+
             // Create an instance of the digital signature system
             DigitalSignatureSystem signatureSystem = new DigitalSignatureSystem();
 
-            // Generate key pair
+            // Load or generate key pair
             System.out.println("=== Digital Signature System ===\n");
-            System.out.println("1. Generating RSA Key Pair...");
-            signatureSystem.generateKeyPair();
+            System.out.println("1. Loading RSA Key Pair...");
+            signatureSystem.loadOrGenerateKeyPair(keyManager, KEY_FILE);
 
             // Display keys
             signatureSystem.displayKeys();
@@ -41,9 +50,16 @@ public class Q3 {
             testTampering(signatureSystem, message, signature);
             // Test authenticity verification
             System.out.println("\n5. Testing authenticity verification...");
-            testAuthenticity(signatureSystem, message, signature);
+            testAuthenticity(signatureSystem, message, signature, keyManager);
+            // Test batch verification
+            System.out.println("\n6. Testing batch verification...");
+            testBatchVerification(signatureSystem, message);
+            // Test batch signing over a Merkle root
+            System.out.println("\n7. Testing batch signing...");
+            testBatchSigning(signatureSystem, message);
 
             scanner.close();
+            keyManager.close();
 
         } catch (Exception e) {
             System.err.println("Error: " + e.getMessage());
@@ -93,7 +109,7 @@ public class Q3 {
      * impersonation
      */
     private static void testAuthenticity(DigitalSignatureSystem originalSystem, String message,
-            byte[] originalSignature) {
+            byte[] originalSignature, KeyManager keyManager) {
         System.out.println("=== AUTHENTICITY VERIFICATION TEST ===");
 
         try {
@@ -102,10 +118,13 @@ public class Q3 {
             boolean isAuthentic = originalSystem.verifySignature(message, originalSignature);
             System.out.printf("  Original signature - Authentic: %s\n", isAuthentic ? "YES" : "NO");
 
-            // Test 2: Impersonation attempt - different key pair
+            // Test 2: Impersonation attempt - different key pair, taken from the pool
             System.out.println("\n2. Impersonation Detection:");
-            DigitalSignatureSystem imposterSystem = new DigitalSignatureSystem();
-            imposterSystem.generateKeyPair();
+            long missesBefore = keyManager.getPoolMisses();
+            DigitalSignatureSystem imposterSystem = new DigitalSignatureSystem(keyManager.getScheme(),
+                    keyManager.nextKeyPair());
+            System.out.println("Imposter key pair pre-generated: "
+                    + (keyManager.getPoolMisses() == missesBefore ? "YES" : "NO"));
 
             // Imposter tries to sign the same message
             byte[] imposterSignature = imposterSystem.signMessage(message);
@@ -118,123 +137,94 @@ public class Q3 {
         }
         System.out.println("\nAuthenticity verification tests completed!");
     }
-}
-
-/**
- * Digital Signature System using RSA encryption
- */
-class DigitalSignatureSystem {
-    private KeyPair keyPair;
-    private PublicKey publicKey;
-    private PrivateKey privateKey;
-    private static final String ALGORITHM = "RSA";
-    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
-    private static final int KEY_SIZE = 2048;
-
-    /**
-     * Generates a new RSA key pair
-     */
-    public void generateKeyPair() throws NoSuchAlgorithmException {
-        KeyPairGenerator keyGen = KeyPairGenerator.getInstance(ALGORITHM);
-        keyGen.initialize(KEY_SIZE);
-
-        this.keyPair = keyGen.generateKeyPair();
-        this.publicKey = keyPair.getPublic();
-        this.privateKey = keyPair.getPrivate();
-
-        System.out.println("RSA Key Pair generated successfully");
-        System.out.println("  - Key Size: " + KEY_SIZE + " bits");
-        System.out.println("  - Algorithm: " + ALGORITHM);
-        System.out.println("  - Signature Algorithm: " + SIGNATURE_ALGORITHM);
-    }
 
     /**
-     * Signs a message using the private key
+     * Verifies a block of signed messages in one batch, with a few forged
+     * entries mixed in, and compares against verifying them one at a time
      */
-    public byte[] signMessage(String message) throws Exception {
-        if (privateKey == null) {
-            throw new IllegalStateException("Private key not available. Generate key pair first.");
-        }
-
-        Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
-        signature.initSign(privateKey);
-        signature.update(message.getBytes("UTF-8"));
+    private static void testBatchVerification(DigitalSignatureSystem system, String message) {
+        System.out.println("=== BATCH VERIFICATION TEST ===");
 
-        byte[] digitalSignature = signature.sign();
-        System.out.println("Message signed successfully");
-
-        return digitalSignature;
-    }
+        try {
+            int count = 500;
+            List<DigitalSignatureSystem.SignedMessage> batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String text = message + " #" + i;
+                byte[] input = text.getBytes(StandardCharsets.UTF_8);
+                byte[] signature = new byte[system.signatureLength()];
+                system.sign(input, 0, input.length, signature, 0);
+                // Every 100th entry claims a different message than the one signed
+                batch.add(new DigitalSignatureSystem.SignedMessage(i % 100 == 7 ? text + "!" : text,
+                        signature, system.getPublicKey(), system.getScheme()));
+            }
 
-    /**
-     * Verifies a signature against a message using the public key
-     */
-    public boolean verifySignature(String message, byte[] signature) throws Exception {
-        if (publicKey == null) {
-            throw new IllegalStateException("Public key not available. Generate key pair first.");
+            long start = System.nanoTime();
+            int serialValid = 0;
+            for (DigitalSignatureSystem.SignedMessage entry : batch) {
+                if (system.verifySignature(entry.getMessage(), entry.getSignature())) {
+                    serialValid++;
+                }
+            }
+            long serialNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            BitSet valid = DigitalSignatureSystem.verifyBatch(batch);
+            long batchNanos = System.nanoTime() - start;
+
+            BitSet firstFailure = DigitalSignatureSystem.verifyBatch(batch, true);
+
+            System.out.printf("  Entries: %d, valid one at a time: %d, valid in batch: %d%n",
+                    count, serialValid, valid.cardinality());
+            System.out.printf("  First forged entry: %d%n", valid.nextClearBit(0));
+            System.out.printf("  Fail-fast batch stopped with %d entries confirmed%n", firstFailure.cardinality());
+            System.out.printf("  One at a time: %.1f ms, batch on %d threads: %.1f ms%n",
+                    serialNanos / 1e6, Runtime.getRuntime().availableProcessors(), batchNanos / 1e6);
+            System.out.printf("  Signed %d messages, average %.0f us, slowest %.0f us%n",
+                    system.getSignCount(), system.getAverageSignMicros(), system.getMaxSignNanos() / 1e3);
+        } catch (Exception e) {
+            System.err.println("Error during batch verification test: " + e.getMessage());
         }
-
-        Signature verifier = Signature.getInstance(SIGNATURE_ALGORITHM);
-        verifier.initVerify(publicKey);
-        verifier.update(message.getBytes("UTF-8"));
-
-        return verifier.verify(signature);
-    }
-
-    /**
-     * Displays the generated keys (Base64 encoded for readability)
-     */
-    public void displayKeys() {
-        System.out.println("\n=== GENERATED KEYS ===");
-
-        // Display Public Key
-        String publicKeyBase64 = Base64.getEncoder().encodeToString(publicKey.getEncoded());
-        System.out.println("\nPublic Key (Base64):");
-        System.out.println("Format: " + publicKey.getFormat());
-        System.out.println("Algorithm: " + publicKey.getAlgorithm());
-        printFormattedKey(publicKeyBase64);
-
-        // Display Private Key (for academic purposes only)
-        String privateKeyBase64 = Base64.getEncoder().encodeToString(privateKey.getEncoded());
-        System.out.println("\nPrivate Key (Base64) - *FOR ACADEMIC PURPOSES ONLY*:");
-        System.out.println("Format: " + privateKey.getFormat());
-        System.out.println("Algorithm: " + privateKey.getAlgorithm());
-        printFormattedKey(privateKeyBase64);
-
-        System.out.println("\nWARNING: In production, NEVER expose private keys!");
     }
 
     /**
-     * Displays signature results
+     * Signs a batch of messages with one signature over their Merkle root and
+     * checks every receipt, plus one receipt presented with the wrong message
      */
-    public void displaySignatureResults(String message, byte[] signature) {
-        System.out.println("\n=== SIGNATURE RESULTS ===");
-        System.out.println("Original Message: \"" + message + "\"");
-        System.out.println("Message Length: " + message.length() + " characters");
-
-        String signatureBase64 = Base64.getEncoder().encodeToString(signature);
-        System.out.println("\nDigital Signature (Base64):");
-        System.out.println("Signature Length: " + signature.length + " bytes");
-        printFormattedKey(signatureBase64);
-    }
+    private static void testBatchSigning(DigitalSignatureSystem system, String message) {
+        System.out.println("=== BATCH SIGNING TEST ===");
 
-    /**
-     * Helper method to format long Base64 strings for better readability
-     */
-    private void printFormattedKey(String base64String) {
-        int lineLength = 64;
-        for (int i = 0; i < base64String.length(); i += lineLength) {
-            int end = Math.min(i + lineLength, base64String.length());
-            System.out.println(base64String.substring(i, end));
-        }
-    }
+        try {
+            int count = 2000;
+            List<String> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                messages.add(message + " #" + i);
+            }
 
-    // Getters for testing purposes
-    public PublicKey getPublicKey() {
-        return publicKey;
-    }
+            long start = System.nanoTime();
+            List<MerkleBatchSigner.Receipt> receipts = new MerkleBatchSigner(system).signBatch(messages);
+            long signNanos = System.nanoTime() - start;
 
-    public PrivateKey getPrivateKey() {
-        return privateKey;
+            MerkleBatchSigner.Verifier verifier = new MerkleBatchSigner.Verifier();
+            start = System.nanoTime();
+            int valid = 0;
+            for (int i = 0; i < count; i++) {
+                if (verifier.verify(messages.get(i), receipts.get(i), system.getPublicKey())) {
+                    valid++;
+                }
+            }
+            long verifyNanos = System.nanoTime() - start;
+            boolean forged = verifier.verify(message + " #0 (modified)", receipts.get(0), system.getPublicKey());
+
+            System.out.printf("  Messages: %d, receipts valid: %d, signature checks: %d%n",
+                    count, valid, verifier.getSignatureChecks());
+            System.out.printf("  Modified message accepted: %s%n", forged ? "YES" : "NO");
+            System.out.printf("  Receipt size: %d bytes (proof depth %d)%n",
+                    receipts.get(0).byteSize(), receipts.get(0).getProof().size());
+            System.out.printf("  Batch signed in %.1f ms, one signature each would take about %.0f ms%n",
+                    signNanos / 1e6, count * system.getAverageSignMicros() / 1e3);
+            System.out.printf("  All receipts verified in %.1f ms%n", verifyNanos / 1e6);
+        } catch (Exception e) {
+            System.err.println("Error during batch signing test: " + e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.Arrays;
+
+/**
+ * Side-by-side key generation, signing and verification rates for every standard SignatureScheme
+ *
+ * Usage: java SignatureBenchmark [secondsPerMeasurement]
+ */
+public class SignatureBenchmark {
+
+    private static final String MESSAGE = "This is my digital signature test";
+
+    interface Operation {
+        void run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 1.0;
+        byte[] message = MESSAGE.getBytes(StandardCharsets.UTF_8);
+
+        System.out.println("=== Signature Scheme Benchmark ===");
+        System.out.printf("%.1f s per measurement after a short warm-up, one thread%n%n", seconds);
+        System.out.printf("%-12s %12s %12s %12s %10s %10s%n",
+                "Scheme", "Keygen/s", "Sign/s", "Verify/s", "Sig bytes", "Key bytes");
+
+        for (SignatureScheme scheme : SignatureScheme.Standard.values()) {
+            double keygenRate = measure(seconds, scheme::generateKeyPair);
+
+            KeyPair keyPair = scheme.generateKeyPair();
+            DigitalSignatureSystem system = new DigitalSignatureSystem(scheme, keyPair);
+            byte[] out = new byte[system.signatureLength()];
+            double signRate = measure(seconds, () -> system.sign(message, 0, message.length, out, 0));
+
+            int signatureLength = system.sign(message, 0, message.length, out, 0);
+            byte[] signature = Arrays.copyOf(out, signatureLength);
+            double verifyRate = measure(seconds, () -> {
+                if (!system.verifySignature(MESSAGE, signature)) {
+                    throw new IllegalStateException(scheme + " failed to verify its own signature");
+                }
+            });
+
+            System.out.printf("%-12s %12.1f %12.1f %12.1f %10d %10d%n", scheme.getName(), keygenRate, signRate,
+                    verifyRate, signatureLength, keyPair.getPublic().getEncoded().length);
+        }
+        System.out.println("\nKey bytes is the X.509 encoded public key. ECDSA signatures are DER encoded and vary by a few bytes.");
+    }
+
+    /**
+     * Runs the operation for a quarter of the budget to warm up, then for the budget
+     * @return operations per second, at least two operations are always timed
+     */
+    private static double measure(double seconds, Operation operation) throws Exception {
+        runFor((long) (seconds * 0.25e9), operation);
+        long start = System.nanoTime();
+        long count = runFor((long) (seconds * 1e9), operation);
+        return count / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static long runFor(long nanos, Operation operation) throws Exception {
+        long deadline = System.nanoTime() + nanos;
+        long count = 0;
+        do {
+            operation.run();
+            count++;
+        } while (count < 2 || System.nanoTime() < deadline);
+        return count;
+    }
+}
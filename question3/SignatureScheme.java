@@ -0,0 +1,179 @@
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECKey;
+import java.security.interfaces.RSAKey;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.RSAKeyGenParameterSpec;
+
+/**
+ * Key type and signature algorithm used by a DigitalSignatureSystem
+ */
+public interface SignatureScheme {
+
+    /**
+     * Short display name such as "RSA-2048"
+     */
+    String getName();
+
+    /**
+     * KeyPairGenerator algorithm name
+     */
+    String getKeyAlgorithm();
+
+    /**
+     * Signature algorithm name
+     */
+    String getSignatureAlgorithm();
+
+    /**
+     * Key size in bits as usually quoted for the scheme
+     */
+    int getKeySize();
+
+    /**
+     * Upper bound on the encoded signature size in bytes
+     */
+    int getMaxSignatureLength();
+
+    KeyPair generateKeyPair() throws NoSuchAlgorithmException;
+
+    /**
+     * Checks the pair is usable with this scheme: RSA and EC keys must have the
+     * scheme's size, and a probe signed with the private key must fit in
+     * getMaxSignatureLength() and verify with the public key
+     * @throws InvalidKeyException when the keys are of another scheme or not a pair
+     */
+    default void checkKeyPair(KeyPair keyPair) throws GeneralSecurityException {
+        PublicKey publicKey = keyPair.getPublic();
+        int bits = -1;
+        if (publicKey instanceof RSAKey) {
+            bits = ((RSAKey) publicKey).getModulus().bitLength();
+        } else if (publicKey instanceof ECKey) {
+            bits = ((ECKey) publicKey).getParams().getCurve().getField().getFieldSize();
+        }
+        if (bits >= 0 && bits != getKeySize()) {
+            throw new InvalidKeyException("Got a " + bits + "-bit " + publicKey.getAlgorithm() + " key, expected " + getName());
+        }
+
+        byte[] probe = ("Key pair check for " + getName()).getBytes(StandardCharsets.US_ASCII);
+        Signature signature = Signature.getInstance(getSignatureAlgorithm());
+        signature.initSign(keyPair.getPrivate());
+        signature.update(probe);
+        byte[] signed = signature.sign();
+        if (signed.length > getMaxSignatureLength()) {
+            throw new InvalidKeyException(signed.length + "-byte signature does not fit " + getName());
+        }
+        signature.initVerify(publicKey);
+        signature.update(probe);
+        if (!signature.verify(signed)) {
+            throw new InvalidKeyException("Private and public keys are not a pair");
+        }
+    }
+
+    /**
+     * Signature algorithm for a key of any scheme below, found from the key's algorithm name
+     */
+    static String signatureAlgorithmFor(Key key) {
+        switch (key.getAlgorithm()) {
+            case "RSA":
+                return Standard.RSA_2048.getSignatureAlgorithm();
+            case "EC":
+                return Standard.ECDSA_P256.getSignatureAlgorithm();
+            case "EdDSA":
+            case "Ed25519":
+                return Standard.ED25519.getSignatureAlgorithm();
+            default:
+                throw new IllegalArgumentException("No signature scheme for " + key.getAlgorithm() + " keys");
+        }
+    }
+
+    /**
+     * Schemes available from the default JDK providers
+     */
+    enum Standard implements SignatureScheme {
+        RSA_2048("RSA-2048", "RSA", "SHA256withRSA", 2048, 256),
+        RSA_3072("RSA-3072", "RSA", "SHA256withRSA", 3072, 384),
+        // DER encoding of two 32-byte integers, each possibly with a leading zero
+        ECDSA_P256("ECDSA P-256", "EC", "SHA256withECDSA", 256, 72),
+        ED25519("Ed25519", "Ed25519", "Ed25519", 255, 64);
+
+        private final String name;
+        private final String keyAlgorithm;
+        private final String signatureAlgorithm;
+        private final int keySize;
+        private final int maxSignatureLength;
+
+        Standard(String name, String keyAlgorithm, String signatureAlgorithm, int keySize, int maxSignatureLength) {
+            this.name = name;
+            this.keyAlgorithm = keyAlgorithm;
+            this.signatureAlgorithm = signatureAlgorithm;
+            this.keySize = keySize;
+            this.maxSignatureLength = maxSignatureLength;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getKeyAlgorithm() {
+            return keyAlgorithm;
+        }
+
+        @Override
+        public String getSignatureAlgorithm() {
+            return signatureAlgorithm;
+        }
+
+        @Override
+        public int getKeySize() {
+            return keySize;
+        }
+
+        @Override
+        public int getMaxSignatureLength() {
+            return maxSignatureLength;
+        }
+
+        @Override
+        public KeyPair generateKeyPair() throws NoSuchAlgorithmException {
+            KeyPairGenerator keyGen = KeyPairGenerator.getInstance(keyAlgorithm);
+            AlgorithmParameterSpec parameters = parameters();
+            if (parameters != null) {
+                try {
+                    keyGen.initialize(parameters);
+                } catch (InvalidAlgorithmParameterException e) {
+                    throw new IllegalStateException("Provider rejected " + name + " parameters", e);
+                }
+            }
+            return keyGen.generateKeyPair();
+        }
+
+        private AlgorithmParameterSpec parameters() {
+            switch (this) {
+                case RSA_2048:
+                case RSA_3072:
+                    return new RSAKeyGenParameterSpec(keySize, RSAKeyGenParameterSpec.F4);
+                case ECDSA_P256:
+                    return new ECGenParameterSpec("secp256r1");
+                default:
+                    return null; // Ed25519 has a single parameter set
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package utils;
+
+/**
+ * Hashes many independent messages in one call
+ *
+ * Implementations may compress several messages side by side, so callers
+ * should hand over whole batches rather than one message at a time.
+ * Instances keep scratch buffers and are not thread safe, keep one per thread.
+ * Get one from ShaHash.newBatchHasher().
+ */
+public interface BatchHasher {
+
+  /**
+   * Number of messages compressed side by side, 1 for the scalar path
+   */
+  int lanes();
+
+  /**
+   * Hashes count messages packed in input, message i being
+   * input[offsets[i] .. offsets[i] + lengths[i]), and writes digest i to
+   * out[outOffset + 32 * i .. outOffset + 32 * (i + 1))
+   */
+  void hash(byte[] input, int[] offsets, int[] lengths, int count, byte[] out, int outOffset);
+}
@@ -0,0 +1,255 @@
+package utils;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Portable SHA-256 (FIPS 180-4) with an exposed compression state
+ *
+ * Unlike MessageDigest the state after a shared prefix can be saved and
+ * reused: hash the prefix once, then restore() that midstate before each
+ * suffix so the prefix blocks are never compressed again. Instances are not
+ * thread safe, keep one per thread.
+ */
+public final class Sha256 {
+
+  public static final int BLOCK_LENGTH = 64;
+
+  // Shared with VectorSha256
+  static final int[] K = {
+      0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+      0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+      0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+      0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+      0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+      0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+      0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+      0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+  };
+
+  static final int[] INITIAL_STATE = {
+      0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+  };
+
+  private final int[] state = new int[8];
+  private final byte[] buffer = new byte[BLOCK_LENGTH];
+  private final int[] schedule = new int[64];
+  private int bufferLength;
+  private long totalLength;
+
+  public Sha256() {
+    reset();
+  }
+
+  public Sha256 reset() {
+    System.arraycopy(INITIAL_STATE, 0, state, 0, 8);
+    bufferLength = 0;
+    totalLength = 0;
+    return this;
+  }
+
+  /**
+   * Copies the chaining state, pending partial block and length from a saved
+   * midstate into this instance without allocating
+   */
+  public Sha256 restore(Sha256 midstate) {
+    System.arraycopy(midstate.state, 0, state, 0, 8);
+    System.arraycopy(midstate.buffer, 0, buffer, 0, midstate.bufferLength);
+    bufferLength = midstate.bufferLength;
+    totalLength = midstate.totalLength;
+    return this;
+  }
+
+  /**
+   * Returns an independent copy of the current state, usable as a midstate
+   */
+  public Sha256 copy() {
+    return new Sha256().restore(this);
+  }
+
+  /**
+   * Copies the eight 32-bit chaining words into out
+   */
+  public void getState(int[] out) {
+    System.arraycopy(state, 0, out, 0, 8);
+  }
+
+  /**
+   * Bytes absorbed so far
+   */
+  public long length() {
+    return totalLength;
+  }
+
+  public Sha256 update(byte[] input) {
+    return update(input, 0, input.length);
+  }
+
+  public Sha256 update(byte[] input, int offset, int length) {
+    totalLength += length;
+
+    if (bufferLength > 0) {
+      int take = Math.min(length, BLOCK_LENGTH - bufferLength);
+      System.arraycopy(input, offset, buffer, bufferLength, take);
+      bufferLength += take;
+      offset += take;
+      length -= take;
+      if (bufferLength < BLOCK_LENGTH) {
+        return this;
+      }
+      compress(state, buffer, 0, schedule);
+      bufferLength = 0;
+    }
+
+    while (length >= BLOCK_LENGTH) {
+      compress(state, input, offset, schedule);
+      offset += BLOCK_LENGTH;
+      length -= BLOCK_LENGTH;
+    }
+
+    System.arraycopy(input, offset, buffer, 0, length);
+    bufferLength = length;
+    return this;
+  }
+
+  /**
+   * Absorbs the remaining bytes of the buffer and advances its position to the limit
+   */
+  public Sha256 update(ByteBuffer input) {
+    if (input.hasArray()) {
+      int length = input.remaining();
+      update(input.array(), input.arrayOffset() + input.position(), length);
+      input.position(input.limit());
+      return this;
+    }
+    byte[] chunk = new byte[Math.min(input.remaining(), 4096)];
+    while (input.hasRemaining()) {
+      int length = Math.min(chunk.length, input.remaining());
+      input.get(chunk, 0, length);
+      update(chunk, 0, length);
+    }
+    return this;
+  }
+
+  /**
+   * Pads, writes the 32-byte digest into out[offset ..] and resets
+   */
+  public void digest(byte[] out, int offset) {
+    long bitLength = totalLength * 8;
+    buffer[bufferLength++] = (byte) 0x80;
+    if (bufferLength > BLOCK_LENGTH - 8) {
+      Arrays.fill(buffer, bufferLength, BLOCK_LENGTH, (byte) 0);
+      compress(state, buffer, 0, schedule);
+      bufferLength = 0;
+    }
+    Arrays.fill(buffer, bufferLength, BLOCK_LENGTH - 8, (byte) 0);
+    for (int i = 0; i < 8; i++) {
+      buffer[BLOCK_LENGTH - 1 - i] = (byte) (bitLength >>> (8 * i));
+    }
+    compress(state, buffer, 0, schedule);
+
+    for (int i = 0; i < 8; i++) {
+      int word = state[i];
+      out[offset + i * 4] = (byte) (word >>> 24);
+      out[offset + i * 4 + 1] = (byte) (word >>> 16);
+      out[offset + i * 4 + 2] = (byte) (word >>> 8);
+      out[offset + i * 4 + 3] = (byte) word;
+    }
+    reset();
+  }
+
+  public byte[] digest() {
+    byte[] out = new byte[ShaHash.DIGEST_LENGTH];
+    digest(out, 0);
+    return out;
+  }
+
+  /**
+   * The SHA-256 compression function: folds one 64-byte block into state
+   * @param schedule scratch space of 64 ints for the message schedule
+   */
+  public static void compress(int[] state, byte[] block, int offset, int[] schedule) {
+    int[] w = schedule;
+    for (int t = 0; t < 16; t++) {
+      int i = offset + t * 4;
+      w[t] = (block[i] << 24) | ((block[i + 1] & 0xff) << 16) | ((block[i + 2] & 0xff) << 8) | (block[i + 3] & 0xff);
+    }
+    for (int t = 16; t < 64; t++) {
+      int s0 = Integer.rotateRight(w[t - 15], 7) ^ Integer.rotateRight(w[t - 15], 18) ^ (w[t - 15] >>> 3);
+      int s1 = Integer.rotateRight(w[t - 2], 17) ^ Integer.rotateRight(w[t - 2], 19) ^ (w[t - 2] >>> 10);
+      w[t] = w[t - 16] + s0 + w[t - 7] + s1;
+    }
+
+    int a = state[0];
+    int b = state[1];
+    int c = state[2];
+    int d = state[3];
+    int e = state[4];
+    int f = state[5];
+    int g = state[6];
+    int h = state[7];
+
+    for (int t = 0; t < 64; t++) {
+      int s1 = Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25);
+      int ch = (e & f) ^ (~e & g);
+      int temp1 = h + s1 + ch + K[t] + w[t];
+      int s0 = Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22);
+      int maj = (a & b) ^ (a & c) ^ (b & c);
+      int temp2 = s0 + maj;
+      h = g;
+      g = f;
+      f = e;
+      e = d + temp1;
+      d = c;
+      c = b;
+      b = a;
+      a = temp1 + temp2;
+    }
+
+    state[0] += a;
+    state[1] += b;
+    state[2] += c;
+    state[3] += d;
+    state[4] += e;
+    state[5] += f;
+    state[6] += g;
+    state[7] += h;
+  }
+
+  /**
+   * Self-check against the JDK implementation, including midstate reuse
+   */
+  public static void main(String[] args) throws NoSuchAlgorithmException {
+    MessageDigest jdk = MessageDigest.getInstance("SHA-256");
+    Sha256 sha = new Sha256();
+    Random random = new Random(42);
+    int checks = 0;
+
+    // Every length around the padding boundaries and a few multi-block ones
+    for (int length = 0; length <= 300; length++) {
+      byte[] input = new byte[length];
+      random.nextBytes(input);
+      byte[] expected = jdk.digest(input);
+      if (!Arrays.equals(expected, sha.update(input).digest())) {
+        throw new AssertionError("Digest mismatch for length " + length);
+      }
+
+      // Split into a prefix midstate and a suffix at every possible point
+      for (int split = 0; split <= length; split += 7) {
+        Sha256 midstate = new Sha256().update(input, 0, split);
+        byte[] actual = new Sha256().restore(midstate).update(input, split, length - split).digest();
+        if (!Arrays.equals(expected, actual)) {
+          throw new AssertionError("Midstate mismatch for length " + length + " split " + split);
+        }
+        checks++;
+      }
+      checks++;
+    }
+
+    System.out.println("Known answer: " + ShaHash.toHex(new Sha256().update("abc".getBytes()).digest()));
+    System.out.println("All " + checks + " checks match the JDK SHA-256");
+  }
+}
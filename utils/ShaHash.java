@@ -1,27 +1,249 @@
 package utils;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ShaHash {
 
+  /**
+   * Implementations that can sit behind the sha256 methods
+   */
+  public enum Provider {
+    JDK, // java.security.MessageDigest, HotSpot uses CPU SHA instructions where available
+    PORTABLE // utils.Sha256, plain Java with reusable midstates
+  }
+
+  public static final int DIGEST_LENGTH = 32;
+
+  private static volatile Provider provider = Provider.JDK;
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  // One reusable digest per thread, MessageDigest itself is not thread safe
+  private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(ShaHash::newDigest);
+
+  private static final ThreadLocal<Sha256> PORTABLE = ThreadLocal.withInitial(Sha256::new);
+
+  // Per-thread scratch buffer used by the String wrappers
+  private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[DIGEST_LENGTH]);
+
+  private static final ThreadLocal<BatchHasher> BATCH = ThreadLocal.withInitial(ShaHash::newBatchHasher);
+
+  // Per-thread buffer holding the 128 hex characters of a child pair
+  private static final ThreadLocal<byte[]> PAIR_SCRATCH = ThreadLocal.withInitial(() -> new byte[DIGEST_LENGTH * 4]);
+
+  /**
+   * Selects the implementation used by every hashing method of this class
+   */
+  public static void setProvider(Provider newProvider) {
+    if (newProvider == null) {
+      throw new IllegalArgumentException("Provider cannot be null");
+    }
+    provider = newProvider;
+  }
+
+  public static Provider getProvider() {
+    return provider;
+  }
+
+  /**
+   * Returns the calling thread's SHA-256 digest, already reset
+   * Useful for callers that feed several pieces before finishing.
+   * Always the JDK digest, whichever provider is selected.
+   */
+  public static MessageDigest threadDigest() {
+    MessageDigest digest = DIGEST.get();
+    digest.reset();
+    return digest;
+  }
+
   public static String sha256Hash(String input) {
+    byte[] out = SCRATCH.get();
+    sha256(input.getBytes(StandardCharsets.UTF_8), out, 0);
+    return toHex(out, 0, DIGEST_LENGTH);
+  }
+
+  /**
+   * Hashes the UTF-8 bytes of input into a compact Hash256
+   */
+  public static Hash256 hash256(String input) {
+    byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+    return hash256(bytes, 0, bytes.length);
+  }
+
+  public static Hash256 hash256(byte[] input, int offset, int length) {
+    byte[] out = SCRATCH.get();
+    sha256(input, offset, length, out, 0);
+    return Hash256.fromBytes(out, 0);
+  }
+
+  /**
+   * Hashes the UTF-8 bytes of every input with the thread's batch hasher,
+   * same results as calling hash256 on each one
+   */
+  public static List<Hash256> hash256All(List<String> inputs) {
+    byte[] digests = new byte[inputs.size() * DIGEST_LENGTH];
+    sha256All(inputs, digests, 0);
+    List<Hash256> hashes = new ArrayList<>(inputs.size());
+    for (int i = 0; i < inputs.size(); i++) {
+      hashes.add(Hash256.fromBytes(digests, i * DIGEST_LENGTH));
+    }
+    return hashes;
+  }
+
+  /**
+   * Batch-hashes the UTF-8 bytes of every input, digest i going to
+   * out[outOffset + 32 * i .. outOffset + 32 * (i + 1))
+   */
+  public static void sha256All(List<String> inputs, byte[] out, int outOffset) {
+    int count = inputs.size();
+    byte[][] encoded = new byte[count][];
+    int[] offsets = new int[count];
+    int[] lengths = new int[count];
+    int total = 0;
+    for (int i = 0; i < count; i++) {
+      encoded[i] = inputs.get(i).getBytes(StandardCharsets.UTF_8);
+      offsets[i] = total;
+      lengths[i] = encoded[i].length;
+      total += lengths[i];
+    }
+    byte[] packed = new byte[total];
+    for (int i = 0; i < count; i++) {
+      System.arraycopy(encoded[i], 0, packed, offsets[i], lengths[i]);
+    }
+    BATCH.get().hash(packed, offsets, lengths, count, out, outOffset);
+  }
+
+  /**
+   * Hashes the concatenated hex strings of two child hashes, the Merkle node rule
+   * used by question2. Same result as sha256Hash(left.toHex() + right.toHex())
+   * without building either String.
+   */
+  public static Hash256 hashHexPair(Hash256 left, Hash256 right) {
+    byte[] pair = PAIR_SCRATCH.get();
+    byte[] raw = SCRATCH.get();
+    left.writeTo(raw, 0);
+    toHexAscii(raw, 0, DIGEST_LENGTH, pair, 0);
+    right.writeTo(raw, 0);
+    toHexAscii(raw, 0, DIGEST_LENGTH, pair, DIGEST_LENGTH * 2);
+    return hash256(pair, 0, pair.length);
+  }
+
+  /**
+   * Same node rule as hashHexPair(Hash256, Hash256) for children stored as raw
+   * 32-byte slots, writing the parent into out[outOffset ..]. The output may
+   * overlap either child.
+   */
+  public static void hashHexPair(byte[] nodes, int leftOffset, int rightOffset, byte[] out, int outOffset) {
+    byte[] pair = PAIR_SCRATCH.get();
+    toHexAscii(nodes, leftOffset, DIGEST_LENGTH, pair, 0);
+    toHexAscii(nodes, rightOffset, DIGEST_LENGTH, pair, DIGEST_LENGTH * 2);
+    sha256(pair, 0, pair.length, out, outOffset);
+  }
+
+  /**
+   * Hashes the whole input array into out[outOffset .. outOffset + 32)
+   */
+  public static void sha256(byte[] input, byte[] out, int outOffset) {
+    sha256(input, 0, input.length, out, outOffset);
+  }
+
+  /**
+   * Hashes input[offset .. offset + length) into out[outOffset .. outOffset + 32)
+   * without allocating, using the calling thread's digest
+   */
+  public static void sha256(byte[] input, int offset, int length, byte[] out, int outOffset) {
+    if (provider == Provider.PORTABLE) {
+      PORTABLE.get().reset().update(input, offset, length).digest(out, outOffset);
+      return;
+    }
+    MessageDigest digest = DIGEST.get();
+    checkOutput(out, outOffset);
     try {
-      MessageDigest digest = MessageDigest.getInstance("SHA-256");
-      byte[] hashBytes = digest.digest(input.getBytes());
-
-      // Convert to hexadecimal string
-      StringBuilder hexString = new StringBuilder();
-      for (byte b : hashBytes) {
-        String hex = Integer.toHexString(0xff & b);
-        if (hex.length() == 1) {
-          hexString.append('0');
-        }
-        hexString.append(hex);
+      digest.update(input, offset, length);
+    } catch (RuntimeException e) {
+      digest.reset();
+      throw e;
+    }
+    finish(digest, out, outOffset);
+  }
+
+  /**
+   * Hashes the remaining bytes of the buffer (position to limit) into
+   * out[outOffset .. outOffset + 32). The buffer position is advanced to its limit.
+   */
+  public static void sha256(ByteBuffer input, byte[] out, int outOffset) {
+    if (provider == Provider.PORTABLE) {
+      PORTABLE.get().reset().update(input).digest(out, outOffset);
+      return;
+    }
+    MessageDigest digest = DIGEST.get();
+    checkOutput(out, outOffset);
+    try {
+      digest.update(input);
+    } catch (RuntimeException e) {
+      digest.reset();
+      throw e;
+    }
+    finish(digest, out, outOffset);
+  }
+
+  /**
+   * Finishes prefix || suffix from a midstate holding the already hashed prefix,
+   * so only the suffix blocks are compressed. Always uses the portable engine.
+   */
+  public static void sha256(Sha256 midstate, byte[] suffix, int offset, int length, byte[] out, int outOffset) {
+    PORTABLE.get().restore(midstate).update(suffix, offset, length).digest(out, outOffset);
+  }
+
+  /**
+   * Creates a batch hasher for the calling thread: the multi-buffer Vector API
+   * implementation when jdk.incubator.vector is available and the preferred
+   * species has at least 8 int lanes, otherwise a loop over sha256
+   */
+  public static BatchHasher newBatchHasher() {
+    try {
+      Class<?> vector = Class.forName("utils.VectorSha256");
+      if ((Boolean) vector.getDeclaredMethod("isSupported").invoke(null)) {
+        return (BatchHasher) vector.getDeclaredConstructor().newInstance();
       }
-      return hexString.toString();
-    } catch (NoSuchAlgorithmException e) {
-      throw new RuntimeException("SHA-256 algorithm not available", e);
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // Class not compiled in or module not added
+    }
+    return new ScalarBatchHasher();
+  }
+
+  /**
+   * Encodes bytes as lowercase hex using a lookup table
+   */
+  public static String toHex(byte[] bytes, int offset, int length) {
+    char[] chars = new char[length * 2];
+    for (int i = 0; i < length; i++) {
+      int b = bytes[offset + i] & 0xff;
+      chars[i * 2] = HEX_DIGITS[b >>> 4];
+      chars[i * 2 + 1] = HEX_DIGITS[b & 0x0f];
+    }
+    return new String(chars);
+  }
+
+  public static String toHex(byte[] bytes) {
+    return toHex(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Writes the lowercase hex encoding of bytes as ASCII into out, two bytes per input byte
+   * Lets callers build hex-based hash inputs without creating Strings
+   */
+  public static void toHexAscii(byte[] bytes, int offset, int length, byte[] out, int outOffset) {
+    for (int i = 0; i < length; i++) {
+      int b = bytes[offset + i] & 0xff;
+      out[outOffset + i * 2] = (byte) HEX_DIGITS[b >>> 4];
+      out[outOffset + i * 2 + 1] = (byte) HEX_DIGITS[b & 0x0f];
     }
   }
 
@@ -32,4 +254,50 @@ public class ShaHash {
     }
     return hash.substring(0, 8) + "..."; // Shorten to first 8 characters
   }
+
+  public static String getShortHash(Hash256 hash) {
+    return hash == null ? null : getShortHash(hash.toHex());
+  }
+
+  private static final class ScalarBatchHasher implements BatchHasher {
+    @Override
+    public int lanes() {
+      return 1;
+    }
+
+    @Override
+    public void hash(byte[] input, int[] offsets, int[] lengths, int count, byte[] out, int outOffset) {
+      for (int i = 0; i < count; i++) {
+        sha256(input, offsets[i], lengths[i], out, outOffset + i * DIGEST_LENGTH);
+      }
+    }
+  }
+
+  // Checked before any input is fed, so a bad output range never leaves the thread's digest dirty
+  private static void checkOutput(byte[] out, int outOffset) {
+    if (outOffset < 0 || out.length - outOffset < DIGEST_LENGTH) {
+      throw new IllegalArgumentException("Output buffer too small for SHA-256 digest: " + out.length
+          + " bytes, offset " + outOffset);
+    }
+  }
+
+  private static void finish(MessageDigest digest, byte[] out, int outOffset) {
+    try {
+      digest.digest(out, outOffset, DIGEST_LENGTH);
+    } catch (DigestException e) {
+      digest.reset();
+      throw new IllegalArgumentException("Output buffer too small for SHA-256 digest", e);
+    } catch (RuntimeException e) {
+      digest.reset();
+      throw e;
+    }
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("SHA-256 algorithm not available", e);
+    }
+  }
 }
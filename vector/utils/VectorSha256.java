@@ -0,0 +1,170 @@
+package utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Multi-buffer SHA-256 on the incubating Vector API
+ *
+ * Each SIMD lane runs the compression function for a different message, so
+ * one pass over the 64 rounds hashes 8 messages with AVX2 or 16 with
+ * AVX-512. Narrower species are rejected in favour of the scalar path. Only single-block
+ * messages (up to 55 bytes) go through the lanes, longer ones fall back to
+ * ShaHash one by one.
+ *
+ * Needs --add-modules jdk.incubator.vector at compile and run time, which is
+ * why it lives in its own source root outside utils/. ShaHash loads this
+ * class by name and uses the scalar path when it is missing or unsupported.
+ */
+final class VectorSha256 implements BatchHasher {
+
+  // With 4 lanes the vector rounds lose to MessageDigest on CPUs with SHA instructions
+  static final int MIN_LANES = 8;
+
+  private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+  private static final VarHandle BIG_ENDIAN_INT =
+      MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+  private static final int MAX_SINGLE_BLOCK = Sha256.BLOCK_LENGTH - 9;
+
+  private final int lanes = SPECIES.length();
+  // Message schedule transposed: word t of lane l is at schedule[t * lanes + l]
+  private final int[] schedule = new int[64 * lanes];
+  private final int[] state = new int[8 * lanes];
+  private final int[] laneMessage = new int[lanes];
+
+  /**
+   * True when the preferred species is wide enough to beat the scalar path
+   */
+  static boolean isSupported() {
+    return SPECIES.length() >= MIN_LANES;
+  }
+
+  @Override
+  public int lanes() {
+    return lanes;
+  }
+
+  @Override
+  public void hash(byte[] input, int[] offsets, int[] lengths, int count, byte[] out, int outOffset) {
+    int next = 0;
+    while (next < count) {
+      // Fill the lanes with the next single-block messages, hashing long ones directly
+      int used = 0;
+      while (used < lanes && next < count) {
+        if (lengths[next] > MAX_SINGLE_BLOCK) {
+          ShaHash.sha256(input, offsets[next], lengths[next], out, outOffset + next * Hash256.BYTES);
+        } else {
+          loadBlock(used, input, offsets[next], lengths[next]);
+          laneMessage[used++] = next;
+        }
+        next++;
+      }
+      if (used == 0) {
+        break;
+      }
+      for (int lane = used; lane < lanes; lane++) {
+        loadBlock(lane, input, 0, 0);
+      }
+
+      compress();
+
+      for (int lane = 0; lane < used; lane++) {
+        int o = outOffset + laneMessage[lane] * Hash256.BYTES;
+        for (int i = 0; i < 8; i++) {
+          BIG_ENDIAN_INT.set(out, o + i * 4, state[i * lanes + lane]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the padded single block of a short message into the lane's column
+   * of the first 16 schedule words
+   */
+  private void loadBlock(int lane, byte[] input, int offset, int length) {
+    int fullWords = length >>> 2;
+    for (int t = 0; t < fullWords; t++) {
+      schedule[t * lanes + lane] = (int) BIG_ENDIAN_INT.get(input, offset + t * 4);
+    }
+    // Last partial word followed by the 0x80 padding byte
+    int word = 0;
+    int tail = length & 3;
+    for (int i = 0; i < tail; i++) {
+      word |= (input[offset + fullWords * 4 + i] & 0xff) << (24 - 8 * i);
+    }
+    schedule[fullWords * lanes + lane] = word | (0x80 << (24 - 8 * tail));
+    for (int t = fullWords + 1; t < 15; t++) {
+      schedule[t * lanes + lane] = 0;
+    }
+    schedule[15 * lanes + lane] = length * 8;
+  }
+
+  /**
+   * Runs the compression function on all lanes, starting from the initial state
+   */
+  private void compress() {
+    for (int t = 16; t < 64; t++) {
+      IntVector w15 = IntVector.fromArray(SPECIES, schedule, (t - 15) * lanes);
+      IntVector w2 = IntVector.fromArray(SPECIES, schedule, (t - 2) * lanes);
+      IntVector s0 = w15.lanewise(VectorOperators.ROR, 7)
+          .lanewise(VectorOperators.XOR, w15.lanewise(VectorOperators.ROR, 18))
+          .lanewise(VectorOperators.XOR, w15.lanewise(VectorOperators.LSHR, 3));
+      IntVector s1 = w2.lanewise(VectorOperators.ROR, 17)
+          .lanewise(VectorOperators.XOR, w2.lanewise(VectorOperators.ROR, 19))
+          .lanewise(VectorOperators.XOR, w2.lanewise(VectorOperators.LSHR, 10));
+      IntVector.fromArray(SPECIES, schedule, (t - 16) * lanes)
+          .add(s0)
+          .add(IntVector.fromArray(SPECIES, schedule, (t - 7) * lanes))
+          .add(s1)
+          .intoArray(schedule, t * lanes);
+    }
+
+    IntVector a = IntVector.broadcast(SPECIES, Sha256.INITIAL_STATE[0]);
+    IntVector b = IntVector.broadcast(SPECIES, Sha256.INITIAL_STATE[1]);
+    IntVector c = IntVector.broadcast(SPECIES, Sha256.INITIAL_STATE[2]);
+    IntVector d = IntVector.broadcast(SPECIES, Sha256.INITIAL_STATE[3]);
+    IntVector e = IntVector.broadcast(SPECIES, Sha256.INITIAL_STATE[4]);
+    IntVector f = IntVector.broadcast(SPECIES, Sha256.INITIAL_STATE[5]);
+    IntVector g = IntVector.broadcast(SPECIES, Sha256.INITIAL_STATE[6]);
+    IntVector h = IntVector.broadcast(SPECIES, Sha256.INITIAL_STATE[7]);
+
+    for (int t = 0; t < 64; t++) {
+      IntVector s1 = e.lanewise(VectorOperators.ROR, 6)
+          .lanewise(VectorOperators.XOR, e.lanewise(VectorOperators.ROR, 11))
+          .lanewise(VectorOperators.XOR, e.lanewise(VectorOperators.ROR, 25));
+      // ch = (e & f) ^ (~e & g), written as g ^ (e & (f ^ g))
+      IntVector ch = g.lanewise(VectorOperators.XOR, e.and(f.lanewise(VectorOperators.XOR, g)));
+      IntVector temp1 = h.add(s1).add(ch).add(Sha256.K[t])
+          .add(IntVector.fromArray(SPECIES, schedule, t * lanes));
+      IntVector s0 = a.lanewise(VectorOperators.ROR, 2)
+          .lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.ROR, 13))
+          .lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.ROR, 22));
+      // maj = (a & b) ^ (a & c) ^ (b & c), written as (a & b) | (c & (a | b))
+      IntVector maj = a.and(b).or(c.and(a.or(b)));
+      h = g;
+      g = f;
+      f = e;
+      e = d.add(temp1);
+      d = c;
+      c = b;
+      b = a;
+      a = temp1.add(s0.add(maj));
+    }
+
+    a.add(Sha256.INITIAL_STATE[0]).intoArray(state, 0);
+    b.add(Sha256.INITIAL_STATE[1]).intoArray(state, lanes);
+    c.add(Sha256.INITIAL_STATE[2]).intoArray(state, 2 * lanes);
+    d.add(Sha256.INITIAL_STATE[3]).intoArray(state, 3 * lanes);
+    e.add(Sha256.INITIAL_STATE[4]).intoArray(state, 4 * lanes);
+    f.add(Sha256.INITIAL_STATE[5]).intoArray(state, 5 * lanes);
+    g.add(Sha256.INITIAL_STATE[6]).intoArray(state, 6 * lanes);
+    h.add(Sha256.INITIAL_STATE[7]).intoArray(state, 7 * lanes);
+  }
+}